@@ -1,5 +1,6 @@
 import os
 import re
+import hashlib
 import json
 import logging
 from datetime import datetime
@@ -35,6 +36,16 @@ def _ensure_dir(path):
 def _safe_str(v):
     return str(v) if v is not None else ''
 
+def _model_version():
+    """Identifies the embedding model + dataset contents currently loaded; changes only when they do."""
+    digest = hashlib.sha256(DEFAULT_EMBEDDING_MODEL.encode('utf-8'))
+    for name in ('denial_reason.csv', 'member_subscription.csv', 'plan_coverage.csv'):
+        path = os.path.join(DATASETS_DIR, name)
+        if os.path.exists(path):
+            with open(path, 'rb') as f:
+                digest.update(f.read())
+    return digest.hexdigest()[:16]
+
 def _detect_intent(query_lower, query_type=None):
     if query_type:
         qt = str(query_type).strip().lower()
@@ -56,6 +67,7 @@ class TrainedCSRModelService:
         self.faiss_index = None
         self.corpus = []
         self.corpus_meta = []
+        self.model_version = _model_version()
         self._load_csv_data()
         self._init_retriever()
 
@@ -159,7 +171,7 @@ def handle_query():
 
 @app.route('/health', methods=['GET'])
 def health():
-    return jsonify({'status': 'online', 'memory_optimized': True})
+    return jsonify({'status': 'online', 'memory_optimized': True, 'model_version': model_service.model_version})
 
 if __name__ == '__main__':
     # Render uses the PORT environment variable
@@ -0,0 +1,47 @@
+package com.denial.bot.benchmark;
+
+import com.denial.bot.service.AuthService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT issue and verification costs. {@code validateToken} is the per-request path (served
+ * from the verified-token cache after the first call); {@code getUsernameFromToken} always
+ * verifies the signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthServiceBenchmark {
+
+    private AuthService authService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        authService = BenchmarkFixtures.authService(BenchmarkFixtures.userRepository());
+        token = authService.generateToken(BenchmarkFixtures.USERNAME);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return authService.generateToken(BenchmarkFixtures.USERNAME);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return authService.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return authService.getUsernameFromToken(token);
+    }
+}
@@ -0,0 +1,102 @@
+package com.denial.bot.benchmark;
+
+import com.denial.bot.entity.User;
+import com.denial.bot.repository.UserRepository;
+import com.denial.bot.service.AuthService;
+import com.denial.bot.service.TokenRevocationStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds the services under benchmark without a Spring context: @Value fields are set the way
+ * application.properties defaults would, and repositories are Mockito stubs so the numbers
+ * measure our code rather than the database.
+ */
+final class BenchmarkFixtures {
+
+    static final String USERNAME = "benchuser";
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user() {
+        User user = new User(USERNAME, "bench@example.com", "encoded", "USER", true);
+        user.setId(1L);
+        return user;
+    }
+
+    static UserRepository userRepository() {
+        UserRepository repository = mock(UserRepository.class);
+        User user = user();
+        when(repository.findByUsernameAndActive(eq(USERNAME), eq(true))).thenReturn(Optional.of(user));
+        when(repository.findByUsername(USERNAME)).thenReturn(Optional.of(user));
+        when(repository.existsByUsername(anyString())).thenReturn(false);
+        when(repository.existsByEmail(anyString())).thenReturn(false);
+        return repository;
+    }
+
+    static AuthService authService(UserRepository userRepository) {
+        TokenRevocationStore revocationStore = new TokenRevocationStore();
+        ReflectionTestUtils.setField(revocationStore, "initialCapacity", 1024);
+        ReflectionTestUtils.setField(revocationStore, "bloomBits", 1 << 20);
+        ReflectionTestUtils.setField(revocationStore, "tickMs", 60_000L);
+        ReflectionTestUtils.setField(revocationStore, "wheelSlots", 256);
+        revocationStore.init();
+
+        AuthService authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "jwtSecretRaw", "benchmark-secret-benchmark-secret-0123");
+        ReflectionTestUtils.setField(authService, "jwtExpirationMs", 86_400_000L);
+        ReflectionTestUtils.setField(authService, "maxCachedTokens", 50_000L);
+        ReflectionTestUtils.setField(authService, "maxCachedUsers", 10_000L);
+        ReflectionTestUtils.setField(authService, "userCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(authService, "passwordEncoder", new BCryptPasswordEncoder());
+        ReflectionTestUtils.setField(authService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(authService, "revocationStore", revocationStore);
+        ReflectionTestUtils.setField(authService, "meterRegistry", new SimpleMeterRegistry());
+        authService.init();
+        return authService;
+    }
+
+    /** Configured like Spring Boot's auto-configured mapper. */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /** A direct-lookup ML response, as returned by the /query endpoint. */
+    static Map<String, Object> denialExplanation() {
+        Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("type", "denial_explanation");
+        inner.put("description", "Claim denied: the service is not covered under the member's current plan benefits.");
+        inner.put("action", "Verify the member's plan coverage and resubmit with the correct plan ID or an approved prior authorization.");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("response", inner);
+        response.put("source", "direct_lookup");
+        return response;
+    }
+
+    /** A semantic-search ML response. */
+    static Map<String, Object> semanticHelp() {
+        Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("type", "semantic_help");
+        inner.put("message", "Here are the denial codes most similar to your question: CO-16 (missing information), "
+                + "CO-97 (bundled service) and CO-50 (not medically necessary). Check the claim for missing modifiers first.");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("response", inner);
+        response.put("source", "semantic_search");
+        return response;
+    }
+}
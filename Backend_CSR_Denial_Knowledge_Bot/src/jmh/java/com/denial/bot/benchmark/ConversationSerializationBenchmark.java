@@ -0,0 +1,45 @@
+package com.denial.bot.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of ML responses into the {@code ai_output} column, as done for every saved
+ * conversation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConversationSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> denialExplanation;
+    private Map<String, Object> semanticHelp;
+
+    @Setup
+    public void setup() {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        denialExplanation = BenchmarkFixtures.denialExplanation();
+        semanticHelp = BenchmarkFixtures.semanticHelp();
+    }
+
+    @Benchmark
+    public String serializeDenialExplanation() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(denialExplanation);
+    }
+
+    @Benchmark
+    public String serializeSemanticHelp() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(semanticHelp);
+    }
+}
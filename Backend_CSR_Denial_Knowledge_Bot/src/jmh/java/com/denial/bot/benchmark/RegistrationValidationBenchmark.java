@@ -0,0 +1,44 @@
+package com.denial.bot.benchmark;
+
+import com.denial.bot.model.RegisterRequest;
+import com.denial.bot.service.AuthService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration rule checks (regexes and uniqueness lookups, the latter stubbed).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistrationValidationBenchmark {
+
+    private AuthService authService;
+    private RegisterRequest valid;
+    private RegisterRequest invalid;
+
+    @Setup
+    public void setup() {
+        authService = BenchmarkFixtures.authService(BenchmarkFixtures.userRepository());
+        valid = new RegisterRequest("newuser", "new.user@example.com", "Str0ngPass!");
+        invalid = new RegisterRequest("123", "bad email@", "123");
+    }
+
+    @Benchmark
+    public List<String> validRequest() {
+        return authService.validateRegistrationRequest(valid);
+    }
+
+    @Benchmark
+    public List<String> invalidRequest() {
+        return authService.validateRegistrationRequest(invalid);
+    }
+}
@@ -0,0 +1,132 @@
+package com.denial.bot.benchmark;
+
+import com.denial.bot.controller.ChatHistoryController;
+import com.denial.bot.entity.ChatSession;
+import com.denial.bot.entity.User;
+import com.denial.bot.model.ChatSessionListVersion;
+import com.denial.bot.model.ChatSessionSummary;
+import com.denial.bot.repository.ChatSessionRepository;
+import com.denial.bot.service.ChatMessageService;
+import com.denial.bot.service.ChatMessageService.StoredMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Controller response-map building for the chat history endpoints, with and without the JSON
+ * rendering that follows it. Repositories and the message service are stubbed to return {@code size} rows.
+ * {@code listSessionsNotModified} is a poll whose If-None-Match still matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseMapBenchmark {
+
+    @Param({"10", "100"})
+    private int size;
+
+    private ChatHistoryController controller;
+    private ObjectMapper objectMapper;
+    private User user;
+    private Long sessionId;
+    private String sessionsEtag;
+
+    @Setup
+    public void setup() {
+        user = BenchmarkFixtures.user();
+        objectMapper = BenchmarkFixtures.objectMapper();
+
+        List<ChatSession> sessions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            sessions.add(ChatSession.builder()
+                    .id((long) i + 1)
+                    .user(user)
+                    .sessionDate(LocalDate.now().minusDays(i))
+                    .title("Chat - " + LocalDate.now().minusDays(i))
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+        ChatSession session = sessions.get(0);
+        sessionId = session.getId();
+
+        List<StoredMessage> messages = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            messages.add(new StoredMessage(
+                    (long) i + 1,
+                    i % 2 == 0 ? "user" : "bot",
+                    i % 2 == 0 ? "What does denial code CO-16 mean?" : "Claim lacks information needed for adjudication.",
+                    i % 2 == 0 ? "text" : "structured_json",
+                    "{\"source\":\"direct_lookup\"}",
+                    LocalDateTime.now()));
+        }
+
+        ChatSessionRepository sessionRepository = mock(ChatSessionRepository.class);
+        List<ChatSessionSummary> summaries = sessions.stream()
+                .map(s -> new ChatSessionSummary(s.getId(), s.getSessionDate(), s.getTitle(), s.getUpdatedAt()))
+                .toList();
+        when(sessionRepository.findSummariesByUserId(user.getId())).thenReturn(summaries);
+        when(sessionRepository.findListVersion(user.getId()))
+                .thenReturn(new ChatSessionListVersion((long) size, session.getUpdatedAt()));
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        ChatMessageService messageService = mock(ChatMessageService.class);
+        when(messageService.list(sessionId)).thenReturn(messages);
+
+        controller = new ChatHistoryController();
+        ReflectionTestUtils.setField(controller, "chatSessionRepository", sessionRepository);
+        ReflectionTestUtils.setField(controller, "chatMessageService", messageService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        controller.listSessions(user, new ServletWebRequest(new MockHttpServletRequest("GET", "/api/chat/sessions"), first));
+        sessionsEtag = first.getHeader("ETag");
+    }
+
+    @Benchmark
+    public ResponseEntity<?> listSessions() {
+        return controller.listSessions(user, sessionsRequest(null));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> listSessionsNotModified() {
+        return controller.listSessions(user, sessionsRequest(sessionsEtag));
+    }
+
+    @Benchmark
+    public ResponseEntity<?> getMessages() {
+        return controller.getMessages(sessionId, user);
+    }
+
+    @Benchmark
+    public byte[] getMessagesRendered() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(controller.getMessages(sessionId, user).getBody());
+    }
+
+    private static ServletWebRequest sessionsRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chat/sessions");
+        if (ifNoneMatch != null) request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,100 @@
+package com.denial.bot.config;
+
+import com.denial.bot.service.ReplicaRouting;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Primary + read replica connection pools, active when {@code persistence.replica.url} is set.
+ * The application {@link DataSource} routes read-only transactions (history, session and message
+ * reads) to the replica and everything else to the primary; see {@link ReplicaRouting}.
+ * Flyway always migrates the primary; {@code persistence.replica.migrate} also migrates the replica,
+ * for local setups where it is a second embedded database rather than a real replica.
+ */
+@Configuration
+@ConditionalOnExpression("!'${persistence.replica.url:}'.isBlank()")
+public class ReadReplicaConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    @Value("${persistence.replica.url}")
+    private String replicaUrl;
+
+    @Value("${persistence.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${persistence.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${persistence.replica.maximum-pool-size:10}")
+    private int replicaMaxPoolSize;
+
+    @Value("${persistence.replica.migrate:false}")
+    private boolean migrateReplica;
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        if (migrateReplica) {
+            Flyway.configure().dataSource(replicaUrl, replicaUsername, replicaPassword).load().migrate();
+        }
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(replicaUrl);
+        dataSource.setUsername(replicaUsername);
+        dataSource.setPassword(replicaPassword);
+        dataSource.setMaximumPoolSize(replicaMaxPoolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 ReplicaRouting replicaRouting) {
+        ReadWriteRoutingDataSource reads = new ReadWriteRoutingDataSource(replicaRouting);
+        reads.setTargetDataSources(Map.of(
+                ReadWriteRoutingDataSource.Target.PRIMARY, primaryDataSource,
+                ReadWriteRoutingDataSource.Target.REPLICA, replicaDataSource));
+        reads.afterPropertiesSet();
+        DataSource writes = new DelegatingDataSource(primaryDataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                replicaRouting.onPrimaryConnection();
+                return super.getConnection();
+            }
+        };
+        // The physical connection is only fetched at the first statement, once the transaction has
+        // flagged it read-only or not; read-only ones come from the routing data source
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writes);
+        proxy.setReadOnlyDataSource(reads);
+        logger.info("🔀 Read-only transactions routed to replica pool (max {} connections)", replicaMaxPoolSize);
+        return proxy;
+    }
+}
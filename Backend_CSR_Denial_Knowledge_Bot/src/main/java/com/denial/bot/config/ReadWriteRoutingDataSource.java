@@ -0,0 +1,26 @@
+package com.denial.bot.config;
+
+import com.denial.bot.service.ReplicaRouting;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Serves read-only connections from the replica pool, or from the primary while the current user
+ * is sticky (see {@link ReplicaRouting}). Used as the read-only target of a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which only asks for a
+ * connection once the transaction has marked it read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaRouting routing;
+
+    public ReadWriteRoutingDataSource(ReplicaRouting routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routing.useReplica() ? Target.REPLICA : Target.PRIMARY;
+    }
+}
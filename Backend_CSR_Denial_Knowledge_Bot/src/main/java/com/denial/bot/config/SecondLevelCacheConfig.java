@@ -0,0 +1,76 @@
+package com.denial.bot.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional Hibernate second-level and query cache for {@link com.denial.bot.entity.User} and
+ * {@link com.denial.bot.entity.ChatSession} lookups, kept in-process by Caffeine's JCache provider.
+ *
+ * Every region is created up front, bounded and expiring; Hibernate statistics are switched on
+ * with the cache so per-region hit rates are available (/actuator/info, hibernate.* metrics).
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String USERS_REGION = "users";
+    public static final String USER_QUERIES_REGION = "users.queries";
+    public static final String CHAT_SESSIONS_REGION = "chat_sessions";
+    public static final String CHAT_SESSION_QUERIES_REGION = "chat_sessions.queries";
+
+    @Value("${persistence.l2-cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${persistence.l2-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "persistence.l2-cache.enabled", havingValue = "true")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        for (String region : List.of(USERS_REGION, USER_QUERIES_REGION, CHAT_SESSIONS_REGION, CHAT_SESSION_QUERIES_REGION,
+                RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)) {
+            CaffeineConfiguration<Object, Object> bounded = new CaffeineConfiguration<>();
+            bounded.setMaximumSize(OptionalLong.of(maxEntries));
+            bounded.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+            cacheManager.createCache(region, bounded);
+        }
+        // Table invalidation timestamps must outlive every cached query result: no bound, no expiry
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(ObjectProvider<CacheManager> hibernateCacheManager) {
+        CacheManager cacheManager = hibernateCacheManager.getIfAvailable();
+        return properties -> {
+            if (cacheManager == null) {
+                // hibernate-jcache is on the classpath, so Hibernate would otherwise enable it on its own
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, JCacheRegionFactory.class.getName());
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.denial.bot.config;
 
+import com.denial.bot.service.AuthService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,6 +11,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -21,7 +23,7 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthService authService) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
@@ -30,8 +32,11 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()         // ✅ Login/Logout - No auth needed
                 .requestMatchers("/api/denial/**").permitAll()       // ✅ Denial APIs - Manual JWT validation in controller
                 .requestMatchers("/h2-console/**").permitAll()       // ✅ H2 Console - For database debugging
-                .anyRequest().permitAll()                            // ✅ Allow all - Using manual JWT validation
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll() // ✅ Liveness/readiness probes
+                .requestMatchers("/actuator/**").authenticated()     // 🔒 Metrics and other actuator endpoints need a valid JWT
+                .anyRequest().permitAll()                            // ✅ Allow all - Controllers check the resolved principal
             )
+            .addFilterBefore(new JwtAuthenticationFilter(authService), UsernamePasswordAuthenticationFilter.class) // Parse JWT once per request
             .headers(headers -> headers.frameOptions(frameOptions -> frameOptions.sameOrigin())); // Allow H2 console frames
 
         return http.build();
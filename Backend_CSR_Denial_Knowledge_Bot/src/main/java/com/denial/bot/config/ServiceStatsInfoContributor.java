@@ -0,0 +1,96 @@
+package com.denial.bot.config;
+
+import com.denial.bot.service.ChatSearchIndex;
+import com.denial.bot.service.ContentStore;
+import com.denial.bot.service.ConversationWriter;
+import com.denial.bot.service.DenialCodeIndex;
+import com.denial.bot.service.DenialSearchIndex;
+import com.denial.bot.service.HistoryArchiver;
+import com.denial.bot.service.MemberSubscriptionStore;
+import com.denial.bot.service.MlApiClient;
+import com.denial.bot.service.MlCircuitBreaker;
+import com.denial.bot.service.QueryCoalescer;
+import com.denial.bot.service.QueryResponseCache;
+import com.denial.bot.service.ReplicaRouting;
+import com.denial.bot.service.SecondLevelCache;
+import com.denial.bot.service.TokenRevocationStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational state of the ML client, caches, indexes and writers under {@code /actuator/info}.
+ *
+ * This used to be part of {@code /api/smart/health}, which anyone can call; the actuator
+ * endpoints other than health require a valid JWT (see {@link SecurityConfig}).
+ */
+@Component
+public class ServiceStatsInfoContributor implements InfoContributor {
+
+    @Autowired
+    private MlApiClient mlApiClient;
+
+    @Autowired
+    private MlCircuitBreaker mlCircuitBreaker;
+
+    @Autowired
+    private DenialCodeIndex denialCodeIndex;
+
+    @Autowired
+    private MemberSubscriptionStore memberSubscriptionStore;
+
+    @Autowired
+    private DenialSearchIndex denialSearchIndex;
+
+    @Autowired
+    private QueryResponseCache queryResponseCache;
+
+    @Autowired
+    private QueryCoalescer queryCoalescer;
+
+    @Autowired
+    private ConversationWriter conversationWriter;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ChatSearchIndex chatSearchIndex;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Autowired
+    private HistoryArchiver historyArchiver;
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mlApiInFlight", mlApiClient.getInFlight());
+        stats.put("mlApiCircuit", mlCircuitBreaker.getStats());
+        stats.put("mlApiHedging", mlApiClient.getHedgeStats());
+        stats.put("denialIndex", denialCodeIndex.getStats());
+        stats.put("memberStore", memberSubscriptionStore.getStats());
+        stats.put("localSearch", denialSearchIndex.getStats());
+        stats.put("queryCache", queryResponseCache.getStats());
+        stats.put("queryCoalescing", queryCoalescer.getStats());
+        stats.put("conversationWriter", conversationWriter.getStats());
+        stats.put("contentStore", contentStore.getStats());
+        stats.put("chatSearch", chatSearchIndex.getStats());
+        stats.put("secondLevelCache", secondLevelCache.getStats());
+        stats.put("readReplica", replicaRouting.getStats());
+        stats.put("archive", historyArchiver.getStats());
+        stats.put("tokenRevocation", tokenRevocationStore.getStats());
+        builder.withDetail("services", stats);
+    }
+}
@@ -1,5 +1,6 @@
 package com.denial.bot.controller;
 
+import com.denial.bot.entity.User;
 import com.denial.bot.model.LoginRequest;
 import com.denial.bot.model.LoginResponse;
 import com.denial.bot.model.RegisterRequest;
@@ -10,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
@@ -96,12 +98,12 @@ public class AuthController {
      * Validates a JWT token.
      */
     @PostMapping("/validate")
-    public ResponseEntity<LoginResponse> validateToken(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<LoginResponse> validateToken(@RequestHeader("Authorization") String token,
+                                                       @AuthenticationPrincipal User user) {
         try {
             token = token.replace("Bearer ", "");
-            if (authService.validateToken(token)) {
-                String username = authService.getUsernameFromToken(token);
-                return ResponseEntity.ok(new LoginResponse(token, username, "Token is valid", true));
+            if (user != null) {
+                return ResponseEntity.ok(new LoginResponse(token, user.getUsername(), "Token is valid", true));
             } else {
                 return ResponseEntity.status(401).body(new LoginResponse(null, null, "Invalid or expired token", false));
             }
@@ -115,12 +117,12 @@ public class AuthController {
      * Retrieves the current user from a valid token.
      */
     @GetMapping("/user")
-    public ResponseEntity<LoginResponse> getCurrentUser(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<LoginResponse> getCurrentUser(@RequestHeader("Authorization") String token,
+                                                        @AuthenticationPrincipal User user) {
         try {
             token = token.replace("Bearer ", "");
-            String username = authService.getUsernameFromToken(token);
-            if (username != null && authService.validateToken(token)) {
-                return ResponseEntity.ok(new LoginResponse(token, username, "User retrieved successfully", true));
+            if (user != null) {
+                return ResponseEntity.ok(new LoginResponse(token, user.getUsername(), "User retrieved successfully", true));
             } else {
                 return ResponseEntity.status(401).body(new LoginResponse(null, null, "Invalid or expired token", false));
             }
@@ -131,15 +133,15 @@ public class AuthController {
     }
 
     /**
-     * Logs out the user (client-side token discard).
+     * Logs out the user and revokes the presented token.
      */
     @PostMapping("/logout")
-    public ResponseEntity<LoginResponse> logout(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<LoginResponse> logout(@RequestHeader(value = "Authorization", required = false) String token,
+                                                @AuthenticationPrincipal User user) {
         try {
-            String username = null;
-            if (token.startsWith("Bearer ")) {
-                token = token.substring(7);
-                username = authService.getUsernameFromToken(token);
+            String username = user != null ? user.getUsername() : null;
+            if (user != null && token != null) {
+                authService.revokeToken(token.replace("Bearer ", "").trim());
             }
             logger.info("🚪 Logout for user: {}", username != null ? username : "unknown");
             return ResponseEntity.ok(new LoginResponse(null, username, "Logout successful", true));
@@ -149,6 +151,30 @@ public class AuthController {
         }
     }
 
+    /**
+     * Deactivates the current user's account and revokes the presented token.
+     */
+    @PostMapping("/deactivate")
+    public ResponseEntity<LoginResponse> deactivate(@RequestHeader(value = "Authorization", required = false) String token,
+                                                    @AuthenticationPrincipal User user) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(new LoginResponse(null, null, "Invalid or expired token", false));
+            }
+            if (!authService.deactivateUser(user.getUsername())) {
+                return ResponseEntity.internalServerError().body(new LoginResponse(null, user.getUsername(), "Account deactivation failed", false));
+            }
+            if (token != null) {
+                authService.revokeToken(token.replace("Bearer ", "").trim());
+            }
+            logger.info("🔒 Account deactivated: {}", user.getUsername());
+            return ResponseEntity.ok(new LoginResponse(null, user.getUsername(), "Account deactivated", true));
+        } catch (Exception e) {
+            logger.error("❌ Deactivation error", e);
+            return ResponseEntity.internalServerError().body(new LoginResponse(null, null, "Deactivation failed: " + e.getMessage(), false));
+        }
+    }
+
     /**
      * Provides test instructions for validation.
      */
@@ -1,20 +1,29 @@
 package com.denial.bot.controller;
 
-import com.denial.bot.entity.ChatMessage;
 import com.denial.bot.entity.ChatSession;
 import com.denial.bot.entity.User;
-import com.denial.bot.repository.ChatMessageRepository;
+import com.denial.bot.model.ChatSessionListVersion;
+import com.denial.bot.model.ChatSessionSummary;
 import com.denial.bot.repository.ChatSessionRepository;
-import com.denial.bot.service.AuthService;
+import com.denial.bot.service.ChatMessageService;
+import com.denial.bot.service.ChatMessageService.NewMessage;
+import com.denial.bot.service.ChatMessageService.SavedMessage;
+import com.denial.bot.service.ChatMessageService.StoredMessage;
+import com.denial.bot.service.ChatSearchIndex;
+import com.denial.bot.service.ChatSearchIndex.SearchPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 @RestController
@@ -25,45 +34,50 @@ public class ChatHistoryController {
     private static final Logger logger = LoggerFactory.getLogger(ChatHistoryController.class);
 
     @Autowired
-    private AuthService authService;
+    private ChatSessionRepository chatSessionRepository;
 
     @Autowired
-    private ChatSessionRepository chatSessionRepository;
+    private ChatMessageService chatMessageService;
 
     @Autowired
-    private ChatMessageRepository chatMessageRepository;
+    private ChatSearchIndex chatSearchIndex;
 
     @Autowired
     private ObjectMapper objectMapper;
 
-    private Optional<User> getUserFromAuthHeader(String authHeader) {
-        if (authHeader == null) return Optional.empty();
-        String token = authHeader.replace("Bearer ", "");
-        if (!authService.validateToken(token)) return Optional.empty();
-        String username = authService.getUsernameFromToken(token);
-        return authService.getUserByUsername(username);
-    }
+    @Value("${chat.messages.bulk-max-size:200}")
+    private int bulkMaxSize;
+
+    @Value("${chat.search.default-limit:20}")
+    private int searchDefaultLimit;
 
+    @Value("${chat.search.max-limit:100}")
+    private int searchMaxLimit;
+
+    /**
+     * Lists the user's sessions, newest first. Supports conditional GET: the ETag and
+     * Last-Modified come from the session count and newest updated_at, so an unchanged list is
+     * answered with 304 without being read or serialized.
+     */
     @GetMapping("/sessions")
-    public ResponseEntity<?> listSessions(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> listSessions(@AuthenticationPrincipal User user, WebRequest request) {
         try {
-            Optional<User> userOpt = getUserFromAuthHeader(token);
-            if (userOpt.isEmpty()) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            List<ChatSession> sessions = chatSessionRepository.findByUserOrderBySessionDateDesc(userOpt.get());
-            List<Map<String, Object>> data = new ArrayList<>();
-            for (ChatSession s : sessions) {
-                data.add(Map.of(
-                        "id", s.getId(),
-                        "sessionDate", s.getSessionDate(),
-                        "title", s.getTitle(),
-                        "updatedAt", s.getUpdatedAt()
-                ));
+            ChatSessionListVersion version = chatSessionRepository.findListVersion(user.getId());
+            long lastModified = version.lastUpdatedAt() == null
+                    ? 0 : version.lastUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            String etag = "\"" + user.getId() + "-" + version.count() + "-" + lastModified + "\"";
+            if (request.checkNotModified(etag, lastModified)) {
+                return null;
             }
 
-            return ResponseEntity.ok(Map.of("success", true, "count", data.size(), "data", data));
+            List<ChatSessionSummary> data = chatSessionRepository.findSummariesByUserId(user.getId());
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(Map.of("success", true, "count", data.size(), "data", data));
         } catch (Exception e) {
             logger.error("Failed to list chat sessions", e);
             return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to list sessions: " + e.getMessage()));
@@ -71,14 +85,12 @@ public class ChatHistoryController {
     }
 
     @GetMapping("/sessions/today")
-    public ResponseEntity<?> getOrCreateToday(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> getOrCreateToday(@AuthenticationPrincipal User user) {
         try {
-            Optional<User> userOpt = getUserFromAuthHeader(token);
-            if (userOpt.isEmpty()) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            User user = userOpt.get();
             LocalDate today = LocalDate.now();
             ChatSession session = chatSessionRepository.findByUserAndSessionDate(user, today)
                     .orElseGet(() -> chatSessionRepository.save(ChatSession.builder()
@@ -105,10 +117,9 @@ public class ChatHistoryController {
     @GetMapping("/sessions/{sessionId}/messages")
     public ResponseEntity<?> getMessages(
             @PathVariable Long sessionId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal User user) {
         try {
-            Optional<User> userOpt = getUserFromAuthHeader(token);
-            if (userOpt.isEmpty()) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
@@ -118,20 +129,20 @@ public class ChatHistoryController {
             }
 
             ChatSession session = sessionOpt.get();
-            if (!session.getUser().getId().equals(userOpt.get().getId())) {
+            if (!session.getUser().getId().equals(user.getId())) {
                 return ResponseEntity.status(403).body(Map.of("success", false, "error", "Forbidden"));
             }
 
-            List<ChatMessage> messages = chatMessageRepository.findBySessionOrderByCreatedAtAsc(session);
+            List<StoredMessage> messages = chatMessageService.list(session.getId());
             List<Map<String, Object>> data = new ArrayList<>();
-            for (ChatMessage m : messages) {
+            for (StoredMessage m : messages) {
                 Map<String, Object> item = new LinkedHashMap<>();
-                item.put("id", m.getId());
-                item.put("role", m.getRole());
-                item.put("content", m.getContent());
-                item.put("contentType", m.getContentType());
-                item.put("metadata", m.getMetadata());
-                item.put("createdAt", m.getCreatedAt());
+                item.put("id", m.id());
+                item.put("role", m.role());
+                item.put("content", m.content());
+                item.put("contentType", m.contentType());
+                item.put("metadata", m.metadata());
+                item.put("createdAt", m.createdAt());
                 data.add(item);
             }
 
@@ -145,59 +156,166 @@ public class ChatHistoryController {
     @PostMapping("/sessions/{sessionId}/messages")
     public ResponseEntity<?> appendMessage(
             @PathVariable Long sessionId,
-            @RequestHeader("Authorization") String token,
+            @AuthenticationPrincipal User user,
             @RequestBody Map<String, Object> request) {
         try {
-            Optional<User> userOpt = getUserFromAuthHeader(token);
-            if (userOpt.isEmpty()) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            Optional<ChatSession> sessionOpt = chatSessionRepository.findById(sessionId);
-            if (sessionOpt.isEmpty()) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "error", "Session not found"));
+            NewMessage message = toNewMessage(request);
+            if (message == null) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "role and content are required"));
             }
 
-            ChatSession session = sessionOpt.get();
-            if (!session.getUser().getId().equals(userOpt.get().getId())) {
-                return ResponseEntity.status(403).body(Map.of("success", false, "error", "Forbidden"));
+            SavedMessage saved = chatMessageService.append(sessionId, user.getId(), message);
+            if (saved == null) {
+                return sessionNotOwned(sessionId);
             }
 
-            String role = Objects.toString(request.get("role"), "").trim();
-            String content = Objects.toString(request.get("content"), "");
-            String contentType = Objects.toString(request.get("contentType"), "text").trim();
-            Object metadataObj = request.get("metadata");
+            return ResponseEntity.ok(Map.of("success", true, "data", Map.of(
+                    "id", saved.id(),
+                    "createdAt", saved.createdAt()
+            )));
+        } catch (Exception e) {
+            logger.error("Failed to append chat message", e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to append message: " + e.getMessage()));
+        }
+    }
 
-            if (role.isEmpty() || content == null || content.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "role and content are required"));
+    /**
+     * Appends {@code {"messages": [{role, content, contentType?, metadata?}, ...]}} in order, in
+     * one transaction and one JDBC batch.
+     */
+    @PostMapping("/sessions/{sessionId}/messages/bulk")
+    public ResponseEntity<?> appendMessages(
+            @PathVariable Long sessionId,
+            @AuthenticationPrincipal User user,
+            @RequestBody Map<String, Object> request) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            String metadata = null;
-            if (metadataObj != null) {
-                metadata = metadataObj instanceof String
-                        ? (String) metadataObj
-                        : objectMapper.writeValueAsString(metadataObj);
+            if (!(request.get("messages") instanceof List<?> items) || items.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "messages are required"));
+            }
+            if (items.size() > bulkMaxSize) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "At most " + bulkMaxSize + " messages per request"));
             }
 
-            ChatMessage msg = ChatMessage.builder()
-                    .session(session)
-                    .role(role)
-                    .content(content)
-                    .contentType(contentType.isEmpty() ? "text" : contentType)
-                    .metadata(metadata)
-                    .build();
+            List<NewMessage> messages = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                NewMessage message = items.get(i) instanceof Map<?, ?> item ? toNewMessage(item) : null;
+                if (message == null) {
+                    return ResponseEntity.badRequest().body(Map.of("success", false, "error", "role and content are required (message " + i + ")"));
+                }
+                messages.add(message);
+            }
 
-            ChatMessage saved = chatMessageRepository.save(msg);
-            session.setUpdatedAt(LocalDateTime.now());
-            chatSessionRepository.save(session);
+            List<SavedMessage> saved = chatMessageService.appendAll(sessionId, user.getId(), messages);
+            if (saved == null) {
+                return sessionNotOwned(sessionId);
+            }
 
-            return ResponseEntity.ok(Map.of("success", true, "data", Map.of(
-                    "id", saved.getId(),
-                    "createdAt", saved.getCreatedAt()
-            )));
+            List<Map<String, Object>> data = new ArrayList<>(saved.size());
+            for (SavedMessage m : saved) {
+                data.add(Map.of("id", m.id(), "createdAt", m.createdAt()));
+            }
+            return ResponseEntity.ok(Map.of("success", true, "count", data.size(), "data", data));
         } catch (Exception e) {
-            logger.error("Failed to append chat message", e);
-            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to append message: " + e.getMessage()));
+            logger.error("Failed to append chat messages", e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to append messages: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Full-text search over the caller's chat messages and conversation inputs, ranked best first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @AuthenticationPrincipal User user,
+            @RequestParam("q") String q,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
+            }
+            if (!chatSearchIndex.isEnabled()) {
+                return ResponseEntity.status(404).body(Map.of("success", false, "error", "Search is disabled"));
+            }
+            if (q.trim().isEmpty() || offset < 0) {
+                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "q is required and offset must not be negative"));
+            }
+
+            int pageSize = limit == null || limit <= 0 ? searchDefaultLimit : Math.min(limit, searchMaxLimit);
+            SearchPage page = chatSearchIndex.search(user.getId(), q, offset, pageSize);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("query", q);
+            body.put("total", page.total());
+            body.put("offset", offset);
+            body.put("limit", pageSize);
+            body.put("count", page.items().size());
+            body.put("data", page.items());
+            return ResponseEntity.ok(body);
+        } catch (Exception e) {
+            logger.error("Failed to search chat history", e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to search: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Rebuilds the caller's search index from the database.
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex(@AuthenticationPrincipal User user) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
+            }
+            if (!chatSearchIndex.isEnabled()) {
+                return ResponseEntity.status(404).body(Map.of("success", false, "error", "Search is disabled"));
+            }
+            int documents = chatSearchIndex.rebuild(user.getId());
+            return ResponseEntity.ok(Map.of("success", true, "documents", documents));
+        } catch (Exception e) {
+            logger.error("Failed to rebuild chat search index", e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to rebuild search index: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Validates one message of a request body; null if role or content is missing.
+     */
+    private NewMessage toNewMessage(Map<?, ?> request) throws Exception {
+        String role = Objects.toString(request.get("role"), "").trim();
+        String content = Objects.toString(request.get("content"), "");
+        String contentType = Objects.toString(request.get("contentType"), "text").trim();
+        Object metadataObj = request.get("metadata");
+
+        if (role.isEmpty() || content.trim().isEmpty()) {
+            return null;
+        }
+
+        String metadata = null;
+        if (metadataObj != null) {
+            metadata = metadataObj instanceof String
+                    ? (String) metadataObj
+                    : objectMapper.writeValueAsString(metadataObj);
+        }
+        return new NewMessage(role, content, contentType.isEmpty() ? "text" : contentType, metadata);
+    }
+
+    /**
+     * 404 or 403 after an append matched no owned session; only the failure path pays for the lookup.
+     */
+    private ResponseEntity<?> sessionNotOwned(Long sessionId) {
+        if (!chatSessionRepository.existsById(sessionId)) {
+            return ResponseEntity.status(404).body(Map.of("success", false, "error", "Session not found"));
         }
+        return ResponseEntity.status(403).body(Map.of("success", false, "error", "Forbidden"));
     }
 }
@@ -1,28 +1,50 @@
 package com.denial.bot.controller;
 
+import java.io.IOException;
 import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.denial.bot.entity.Conversation;
 import com.denial.bot.entity.User;
-import com.denial.bot.repository.ConversationRepository;
-import com.denial.bot.service.AuthService;
+import com.denial.bot.service.ConversationHistoryService;
+import com.denial.bot.service.ConversationHistoryService.HistoryFilter;
+import com.denial.bot.service.ConversationHistoryService.HistoryPage;
+import com.denial.bot.service.ConversationWriter;
+import com.denial.bot.service.ConversationWriter.PendingConversation;
+import com.denial.bot.service.MemberSubscriptionStore;
+import com.denial.bot.service.MemberSubscriptionStore.ActiveMembers;
+import com.denial.bot.service.MemberSubscriptionStore.Subscription;
 import com.denial.bot.service.SmartQueryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -36,40 +58,64 @@ public class SmartQueryController {
 
     private static final Logger logger = LoggerFactory.getLogger(SmartQueryController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private SmartQueryService smartQueryService;
 
     @Autowired
-    private AuthService authService;
+    private MemberSubscriptionStore memberSubscriptionStore;
+
+    @Autowired
+    private ConversationHistoryService conversationHistoryService;
 
     @Autowired
-    private ConversationRepository conversationRepository;
+    private ConversationWriter conversationWriter;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    // Request-side work that must not run on the ML client's I/O threads (e.g. batched JDBC writes)
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor requestExecutor;
+
+    @Value("${query.stream.timeout-ms:30000}")
+    private long streamTimeoutMs;
+
+    @Value("${query.stream.heartbeat-ms:5000}")
+    private long streamHeartbeatMs;
+
+    @Value("${query.stream.heartbeat-threads:2}")
+    private int streamHeartbeatThreads;
+
+    @Value("${query.batch.max-size:500}")
+    private int batchMaxSize;
+
+    // Own threads: a slow client write must not hold up @Scheduled jobs on the shared scheduler
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    @PostConstruct
+    public void init() {
+        heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(Math.max(1, streamHeartbeatThreads));
+        heartbeatScheduler.setThreadNamePrefix("sse-heartbeat-");
+        heartbeatScheduler.setDaemon(true);
+        heartbeatScheduler.initialize();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        heartbeatScheduler.shutdown();
+    }
+
     /**
-     * Saves a conversation to the database.
+     * Queues a conversation for write-behind persistence.
      */
-    public void saveConversation(String token, String userInput, Map<String, Object> response) {
+    public void saveConversation(User user, String userInput, Map<String, Object> response) {
         try {
-            String username = authService.getUsernameFromToken(token);
-            Optional<User> userOpt = authService.getUserByUsername(username);
-
-            if (userOpt.isPresent()) {
-                Map<String, Object> innerResponse = (Map<String, Object>) response.get("response");
-                String outputType = innerResponse.get("type").toString();
-                String aiOutput = objectMapper.writeValueAsString(response);
-
-                Conversation convo = new Conversation();
-                convo.setUser(userOpt.get());
-                convo.setUserInput(userInput);
-                convo.setAiOutput(aiOutput);
-                convo.setOutputType(outputType);
-
-                conversationRepository.save(convo);
-                logger.info("💾 Conversation saved for user: {}", username);
-            }
+            conversationWriter.enqueue(user.getId(), userInput, response);
+            logger.info("💾 Conversation queued for user: {}", user.getUsername());
         } catch (Exception e) {
             logger.error("❌ Failed to save conversation", e);
         }
@@ -77,132 +123,479 @@ public class SmartQueryController {
 
     /**
      * Processes a smart query and returns AI-generated response.
+     * The ML round trip runs asynchronously so the servlet thread is released while it is in flight;
+     * the conversation is queued on the application task executor, never on the ML client's threads.
      */
     @PostMapping("/query")
-    public ResponseEntity<?> processSmartQuery(
+    public CompletableFuture<ResponseEntity<?>> processSmartQuery(
             @RequestBody Map<String, Object> request,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal User user) {
 
         try {
-            token = token.replace("Bearer ", "");
-
-            if (!authService.validateToken(token)) {
-                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
+            if (user == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access")));
             }
 
             String query = (String) request.get("query");
             String queryType = (String) request.get("type");
 
             if (query == null || query.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Query is required"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("success", false, "error", "Query is required")));
             }
 
-            Map<String, Object> response = smartQueryService.processQuery(query, queryType);
+            return smartQueryService.processQueryAsync(query, queryType)
+                    .<ResponseEntity<?>>thenApplyAsync(response -> {
+                        if ((Boolean) response.getOrDefault("success", false)) {
+                            saveConversation(user, query, response);
+                        }
+                        return ResponseEntity.ok(response);
+                    }, requestExecutor)
+                    .exceptionally(e -> {
+                        logger.error("❌ Failed to process smart query", e);
+                        return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to process query: " + e.getMessage()));
+                    });
 
-            if ((Boolean) response.getOrDefault("success", false)) {
-                saveConversation(token, query, response);
+        } catch (Exception e) {
+            logger.error("❌ Failed to process smart query", e);
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to process query: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * Answers a list of queries in one authenticated call.
+     *
+     * Expects {@code {"queries": ["...", ...], "type": optional}}. Queries are dispatched with
+     * bounded parallelism; results come back in input order with a per-item status, and the
+     * successful conversations are persisted in one batched write on the application task
+     * executor, never on the ML client's threads that complete the queries.
+     */
+    @PostMapping("/query/batch")
+    public CompletableFuture<ResponseEntity<?>> processSmartQueryBatch(
+            @RequestBody Map<String, Object> request,
+            @AuthenticationPrincipal User user) {
+
+        if (user == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access")));
+        }
+        if (!(request.get("queries") instanceof List<?> rawQueries) || rawQueries.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("success", false, "error", "Queries are required")));
+        }
+        if (rawQueries.size() > batchMaxSize) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("success", false, "error", "At most " + batchMaxSize + " queries per batch")));
+        }
+        String queryType = (String) request.get("type");
+
+        // Blank items are answered right here; only the rest are dispatched
+        List<String> queries = new ArrayList<>(rawQueries.size());
+        List<Integer> positions = new ArrayList<>(rawQueries.size());
+        for (int i = 0; i < rawQueries.size(); i++) {
+            if (rawQueries.get(i) instanceof String query && !query.trim().isEmpty()) {
+                queries.add(query);
+                positions.add(i);
             }
+        }
 
-            return ResponseEntity.ok(response);
+        return smartQueryService.processQueriesAsync(queries, queryType)
+                .<ResponseEntity<?>>thenApplyAsync(responses -> {
+                    List<Map<String, Object>> results = new ArrayList<>(rawQueries.size());
+                    List<PendingConversation> conversations = new ArrayList<>(responses.size());
+                    long now = System.currentTimeMillis();
+                    int succeeded = 0;
+                    int next = 0;
+                    for (int i = 0; i < rawQueries.size(); i++) {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("index", i);
+                        item.put("query", rawQueries.get(i));
+                        if (next < positions.size() && positions.get(next) == i) {
+                            Map<String, Object> response = responses.get(next++);
+                            boolean success = Boolean.TRUE.equals(response.get("success"));
+                            item.put("success", success);
+                            item.put("result", response);
+                            if (success) {
+                                succeeded++;
+                                conversations.add(new PendingConversation(user.getId(), (String) rawQueries.get(i), response, now));
+                            }
+                        } else {
+                            item.put("success", false);
+                            item.put("result", Map.of("success", false, "error", "Query is required"));
+                        }
+                        results.add(item);
+                    }
+                    try {
+                        conversationWriter.writeAll(conversations);
+                        logger.info("💾 Batch of {} conversations saved for user: {}", conversations.size(), user.getUsername());
+                    } catch (Exception e) {
+                        logger.error("❌ Failed to save batch conversations", e);
+                    }
+
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("success", true);
+                    body.put("count", results.size());
+                    body.put("succeeded", succeeded);
+                    body.put("failed", results.size() - succeeded);
+                    body.put("results", results);
+                    return ResponseEntity.ok(body);
+                }, requestExecutor)
+                .exceptionally(e -> {
+                    logger.error("❌ Failed to process batch query", e);
+                    return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to process batch: " + e.getMessage()));
+                });
+    }
 
-        } catch (Exception e) {
-            logger.error("❌ Failed to process smart query", e);
-            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to process query: " + e.getMessage()));
+    /**
+     * Streaming variant of {@link #processSmartQuery} over Server-Sent Events.
+     *
+     * A {@code status} event is flushed right away, then the {@code answer} event carries the same
+     * body /query would return. Local answers (denial index, cache) go out in the first flush;
+     * while the ML API is working, keep-alive comments hold the connection open. The conversation
+     * is persisted before the stream completes, on the application task executor.
+     */
+    @PostMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> processSmartQueryStream(
+            @RequestBody Map<String, Object> request,
+            @AuthenticationPrincipal User user) {
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        if (user == null) {
+            return ResponseEntity.status(401).body(failStream(emitter, "Unauthorized access"));
+        }
+        String query = (String) request.get("query");
+        String queryType = (String) request.get("type");
+        if (query == null || query.trim().isEmpty()) {
+            return ResponseEntity.badRequest().body(failStream(emitter, "Query is required"));
+        }
+
+        try {
+            sendEvent(emitter, "status", Map.of("stage", "accepted"));
+            Map<String, Object> local = smartQueryService.answerLocally(query, queryType);
+            if (local != null) {
+                finishStream(emitter, user, query, local);
+                return ResponseEntity.ok(emitter);
+            }
+            sendEvent(emitter, "status", Map.of("stage", "ml_api"));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return ResponseEntity.ok(emitter);
+        }
+
+        ScheduledFuture<?> heartbeat = heartbeatScheduler.scheduleAtFixedRate(() -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the stream already finished; the completion callback cancels us
+            }
+        }, Instant.now().plusMillis(streamHeartbeatMs), Duration.ofMillis(streamHeartbeatMs));
+        emitter.onCompletion(() -> heartbeat.cancel(false));
+
+        smartQueryService.processQueryAsync(query, queryType).whenCompleteAsync((response, ex) -> {
+            heartbeat.cancel(false);
+            if (ex != null) {
+                logger.error("❌ Failed to process streamed query", ex);
+                failStream(emitter, "Failed to process query: " + ex.getMessage());
+                return;
+            }
+            finishStream(emitter, user, query, response);
+        }, requestExecutor);
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void finishStream(SseEmitter emitter, User user, String query, Map<String, Object> response) {
+        if (Boolean.TRUE.equals(response.get("success"))) {
+            saveConversation(user, query, response);
+        }
+        try {
+            sendEvent(emitter, "answer", response);
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("⚠️ Stream closed before the answer was delivered: {}", e.getMessage());
+            emitter.completeWithError(e);
         }
     }
 
+    private SseEmitter failStream(SseEmitter emitter, String error) {
+        try {
+            sendEvent(emitter, "error", Map.of("success", false, "error", error));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private static void sendEvent(SseEmitter emitter, String name, Object data) throws IOException {
+        emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+    }
+
     /**
-     * Retrieves full conversation history for the authenticated user.
+     * Reports whether the ML API is reachable. Open to anonymous callers, so it says nothing
+     * more; the per-component stats are under the authenticated {@code /actuator/info}.
      */
-    @GetMapping("/history")
-    public ResponseEntity<?> getConversationHistory(@RequestHeader("Authorization") String token) {
+    @GetMapping("/health")
+    public CompletableFuture<ResponseEntity<?>> health() {
+        return smartQueryService.checkMLApiHealthAsync()
+                .thenApply(healthy -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("success", true);
+                    body.put("mlApiHealthy", healthy);
+                    return ResponseEntity.ok(body);
+                });
+    }
+
+    /**
+     * Relays the ML API training status.
+     */
+    @GetMapping("/train-status")
+    public CompletableFuture<ResponseEntity<?>> trainStatus() {
+        return smartQueryService.getTrainStatusAsync().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Relays the datasets available to the ML API.
+     */
+    @GetMapping("/available-data")
+    public CompletableFuture<ResponseEntity<?>> availableData() {
+        return smartQueryService.getAvailableDataAsync().thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Looks up a member's subscriptions. With {@code date}, also reports whether the member
+     * is eligible (has an Active subscription covering that day).
+     */
+    @GetMapping("/member/{memberId}")
+    public ResponseEntity<?> getMember(
+            @AuthenticationPrincipal User user,
+            @PathVariable String memberId,
+            @RequestParam(value = "date", required = false) String dateStr) {
         try {
-            token = token.replace("Bearer ", "");
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
+            }
+
+            LocalDate date = dateStr == null ? null : LocalDate.parse(dateStr);
+            List<Subscription> subscriptions = memberSubscriptionStore.findByMemberId(memberId);
+            if (subscriptions.isEmpty()) {
+                return ResponseEntity.status(404).body(Map.of("success", false, "error", "Member not found"));
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("memberId", subscriptions.get(0).memberId());
+            body.put("memberName", subscriptions.get(0).memberName());
+            body.put("subscriptions", subscriptions);
+            if (date != null) {
+                body.put("date", date);
+                body.put("eligible", subscriptions.stream().anyMatch(s -> s.isActiveOn(date)));
+            }
+            return ResponseEntity.ok(body);
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid date: " + dateStr));
+        } catch (Exception e) {
+            logger.error("❌ Failed to look up member {}", memberId, e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to look up member: " + e.getMessage()));
+        }
+    }
 
-            if (!authService.validateToken(token)) {
+    /**
+     * Lists subscriptions active on {@code date}, optionally for one plan; {@code total} counts
+     * all matches, {@code data} holds at most {@code limit} of them, most recently effective first.
+     */
+    @GetMapping("/members/active")
+    public ResponseEntity<?> getActiveMembers(
+            @AuthenticationPrincipal User user,
+            @RequestParam("date") String dateStr,
+            @RequestParam(value = "planId", required = false) String planId,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            String username = authService.getUsernameFromToken(token);
-            Optional<User> userOpt = authService.getUserByUsername(username);
+            LocalDate date = LocalDate.parse(dateStr);
+            int pageSize = limit == null || limit <= 0 ? 100 : Math.min(limit, 1000);
+            ActiveMembers active = memberSubscriptionStore.findActiveOn(date, planId, pageSize);
 
-            if (userOpt.isPresent()) {
-                List<Conversation> history = conversationRepository.findByUser(userOpt.get());
-                return ResponseEntity.ok(Map.of("success", true, "count", history.size(), "data", history));
-            } else {
-                return ResponseEntity.status(404).body(Map.of("success", false, "error", "User not found"));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("success", true);
+            body.put("date", date);
+            body.put("total", active.total());
+            body.put("count", active.items().size());
+            body.put("data", active.items());
+            return ResponseEntity.ok(body);
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid date: " + dateStr));
+        } catch (Exception e) {
+            logger.error("❌ Failed to list active members", e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to list active members: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Retrieves the authenticated user's conversation history, newest first, one page at a time.
+     * Pass the returned {@code nextCursor} back as {@code cursor} to get the following page.
+     * {@code view=summary} returns input snippets without AI outputs; fetch one with /history/{id}.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getConversationHistory(
+            @AuthenticationPrincipal User user,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "view", required = false) String view) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
+            return historyPage(HistoryFilter.all(user.getId()), cursor, limit, view);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ Failed to fetch conversation history", e);
             return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to fetch history: " + e.getMessage()));
         }
     }
 
+    /**
+     * Streams the full conversation history as NDJSON.
+     */
+    @GetMapping(value = "/history/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamConversationHistory(@AuthenticationPrincipal User user) {
+        if (user == null) {
+            return streamError(401, "Unauthorized access");
+        }
+        return historyStream(HistoryFilter.all(user.getId()));
+    }
+
+    /**
+     * Retrieves a single conversation with its full AI output.
+     */
+    @GetMapping("/history/{id}")
+    public ResponseEntity<?> getConversation(@PathVariable Long id, @AuthenticationPrincipal User user) {
+        try {
+            if (user == null) {
+                return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
+            }
+
+            return conversationHistoryService.find(user.getId(), id)
+                    .<ResponseEntity<?>>map(conversation -> ResponseEntity.ok(Map.of("success", true, "data", conversation)))
+                    .orElseGet(() -> ResponseEntity.status(404).body(Map.of("success", false, "error", "Conversation not found")));
+
+        } catch (Exception e) {
+            logger.error("❌ Failed to fetch conversation {}", id, e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to fetch conversation: " + e.getMessage()));
+        }
+    }
+
     /**
      * Retrieves conversation history filtered by output type.
      */
     @GetMapping("/history/type/{outputType}")
     public ResponseEntity<?> getConversationByType(
             @PathVariable String outputType,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal User user,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "view", required = false) String view) {
 
         try {
-            token = token.replace("Bearer ", "");
-
-            if (!authService.validateToken(token)) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            String username = authService.getUsernameFromToken(token);
-            Optional<User> userOpt = authService.getUserByUsername(username);
-
-            if (userOpt.isPresent()) {
-                List<Conversation> filtered = conversationRepository.findByUserAndOutputType(userOpt.get(), outputType);
-                return ResponseEntity.ok(Map.of("success", true, "count", filtered.size(), "data", filtered));
-            } else {
-                return ResponseEntity.status(404).body(Map.of("success", false, "error", "User not found"));
-            }
+            return historyPage(new HistoryFilter(user.getId(), outputType, null, null), cursor, limit, view);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ Failed to fetch filtered conversation history", e);
             return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to fetch filtered history: " + e.getMessage()));
         }
     }
 
+    /**
+     * Streams conversation history filtered by output type as NDJSON.
+     */
+    @GetMapping(value = "/history/type/{outputType}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamConversationByType(
+            @PathVariable String outputType,
+            @AuthenticationPrincipal User user) {
+        if (user == null) {
+            return streamError(401, "Unauthorized access");
+        }
+        return historyStream(new HistoryFilter(user.getId(), outputType, null, null));
+    }
+
     /**
      * Retrieves conversation history within a specified date range.
      */
     @GetMapping("/history/date-range")
     public ResponseEntity<?> getConversationByDateRange(
-            @RequestHeader("Authorization") String token,
+            @AuthenticationPrincipal User user,
             @RequestParam("start") String startDateStr,
-            @RequestParam("end") String endDateStr) {
+            @RequestParam("end") String endDateStr,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "view", required = false) String view) {
 
         try {
-            token = token.replace("Bearer ", "");
-
-            if (!authService.validateToken(token)) {
+            if (user == null) {
                 return ResponseEntity.status(401).body(Map.of("success", false, "error", "Unauthorized access"));
             }
 
-            String username = authService.getUsernameFromToken(token);
-            Optional<User> userOpt = authService.getUserByUsername(username);
-
-            if (userOpt.isEmpty()) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "error", "User not found"));
-            }
-
             Date startDate = Date.valueOf(startDateStr);
             Date endDate = Date.valueOf(endDateStr);
 
-            List<Conversation> filtered = conversationRepository.findByUserAndDateRange(userOpt.get(), startDate, endDate);
-
-            return ResponseEntity.ok(Map.of("success", true, "count", filtered.size(), "data", filtered));
+            return historyPage(new HistoryFilter(user.getId(), null, startDate, endDate), cursor, limit, view);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "Invalid date range or cursor: " + e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ Failed to fetch date-filtered conversation history", e);
             return ResponseEntity.internalServerError().body(Map.of("success", false, "error", "Failed to fetch date-filtered history: " + e.getMessage()));
         }
     }
+
+    /**
+     * Streams conversation history within a date range as NDJSON.
+     */
+    @GetMapping(value = "/history/date-range/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamConversationByDateRange(
+            @AuthenticationPrincipal User user,
+            @RequestParam("start") String startDateStr,
+            @RequestParam("end") String endDateStr) {
+        if (user == null) {
+            return streamError(401, "Unauthorized access");
+        }
+        try {
+            return historyStream(new HistoryFilter(user.getId(), null, Date.valueOf(startDateStr), Date.valueOf(endDateStr)));
+        } catch (IllegalArgumentException e) {
+            return streamError(400, "Invalid date range: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> historyPage(HistoryFilter filter, String cursor, Integer limit, String view) {
+        HistoryPage<?> page = switch (view == null ? "full" : view) {
+            case "full" -> conversationHistoryService.page(filter, cursor, limit);
+            case "summary" -> conversationHistoryService.summaryPage(filter, cursor, limit);
+            default -> throw new IllegalArgumentException("Unknown view: " + view);
+        };
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", true);
+        body.put("count", page.items().size());
+        body.put("data", page.items());
+        body.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> historyStream(HistoryFilter filter) {
+        StreamingResponseBody body = out -> conversationHistoryService.stream(filter, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamError(int status, String error) {
+        StreamingResponseBody body = out -> objectMapper.writeValue(out, Map.of("success", false, "error", error));
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 }
@@ -42,6 +42,11 @@ public class ChatMessage {
     @Column(name = "metadata", columnDefinition = "TEXT")
     private String metadata;
 
+    // Hash of the content_blobs row holding metadata when it is stored compressed (metadata is then null)
+    @Column(name = "metadata_ref", length = 32)
+    @JsonIgnore
+    private byte[] metadataRef;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
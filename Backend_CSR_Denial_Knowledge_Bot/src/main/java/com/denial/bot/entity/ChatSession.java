@@ -1,9 +1,12 @@
 package com.denial.bot.entity;
 
+import com.denial.bot.config.SecondLevelCacheConfig;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -17,6 +20,7 @@ import java.time.LocalDateTime;
 @Builder
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CHAT_SESSIONS_REGION)
 @Table(name = "chat_sessions",
         uniqueConstraints = {
                 @UniqueConstraint(name = "uk_chat_sessions_user_date", columnNames = {"user_id", "session_date"})
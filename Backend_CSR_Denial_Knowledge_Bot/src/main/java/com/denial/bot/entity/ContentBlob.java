@@ -0,0 +1,38 @@
+package com.denial.bot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * ContentBlob is a compressed, content-addressed body shared by every conversation or chat
+ * message with the same text. Rows are written and read by
+ * {@link com.denial.bot.service.ContentStore}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "content_blobs")
+public class ContentBlob {
+
+    @Id
+    @Column(name = "hash", length = 32)
+    private byte[] hash; // SHA-256 of the uncompressed UTF-8 bytes
+
+    @Column(name = "codec", nullable = false)
+    private short codec; // 0 = stored, 1 = deflate
+
+    @Column(name = "raw_length", nullable = false)
+    private int rawLength;
+
+    // A @Lob's default length of 255 maps to TINYBLOB on MySQL; this length maps to LONGBLOB
+    @Lob
+    @Column(name = "data", length = Integer.MAX_VALUE, nullable = false)
+    private byte[] data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -15,7 +15,10 @@ import java.util.Date;
 @Builder
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        @Index(name = "idx_conversations_user_created", columnList = "user_id,created_at"),
+        @Index(name = "idx_conversations_user_type_created", columnList = "user_id,output_type,created_at")
+})
 public class Conversation {
 
     @Id
@@ -33,6 +36,11 @@ public class Conversation {
     @Column(name = "ai_output", columnDefinition = "TEXT", nullable = false)
     private String aiOutput;
 
+    // Hash of the content_blobs row holding ai_output when it is stored compressed (ai_output is then empty)
+    @Column(name = "ai_output_ref", length = 32)
+    @JsonIgnore
+    private byte[] aiOutputRef;
+
     @Column(name = "output_type", nullable = false)
     private String outputType;
 
@@ -1,7 +1,10 @@
 package com.denial.bot.entity;
 
+import com.denial.bot.config.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * User entity representing application users.
@@ -10,6 +13,7 @@ import lombok.*;
  * so existing code that instantiates new User(...) compiles reliably.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.USERS_REGION)
 @Table(name = "users", indexes = {
         @Index(name = "idx_users_username", columnList = "username"),
         @Index(name = "idx_users_email", columnList = "email")
@@ -0,0 +1,9 @@
+package com.denial.bot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Changes whenever a user's session list does: a session is added or removed, or one is updated.
+ */
+public record ChatSessionListVersion(Long count, LocalDateTime lastUpdatedAt) {
+}
@@ -0,0 +1,10 @@
+package com.denial.bot.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a chat session shown in the session list, read by a JPQL constructor projection.
+ */
+public record ChatSessionSummary(Long id, LocalDate sessionDate, String title, LocalDateTime updatedAt) {
+}
@@ -1,13 +1,9 @@
 package com.denial.bot.repository;
 
 import com.denial.bot.entity.ChatMessage;
-import com.denial.bot.entity.ChatSession;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    List<ChatMessage> findBySessionOrderByCreatedAtAsc(ChatSession session);
 }
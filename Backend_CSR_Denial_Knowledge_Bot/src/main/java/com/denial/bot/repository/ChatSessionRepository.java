@@ -1,9 +1,18 @@
 package com.denial.bot.repository;
 
+import com.denial.bot.config.SecondLevelCacheConfig;
 import com.denial.bot.entity.ChatSession;
 import com.denial.bot.entity.User;
+import com.denial.bot.model.ChatSessionListVersion;
+import com.denial.bot.model.ChatSessionSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,6 +20,26 @@ import java.util.Optional;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {
+    // Ownership checks: the inherited versions are read-only and would go to the replica, which may
+    // not have a session created moments ago yet; without a transaction they read from the primary
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    Optional<ChatSession> findById(Long id);
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    boolean existsById(Long id);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.CHAT_SESSION_QUERIES_REGION)
+    })
     Optional<ChatSession> findByUserAndSessionDate(User user, LocalDate sessionDate);
     List<ChatSession> findByUserOrderBySessionDateDesc(User user);
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.denial.bot.model.ChatSessionSummary(s.id, s.sessionDate, s.title, s.updatedAt) " +
+            "FROM ChatSession s WHERE s.user.id = :userId ORDER BY s.sessionDate DESC")
+    List<ChatSessionSummary> findSummariesByUserId(Long userId);
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.denial.bot.model.ChatSessionListVersion(COUNT(s), MAX(s.updatedAt)) " +
+            "FROM ChatSession s WHERE s.user.id = :userId")
+    ChatSessionListVersion findListVersion(Long userId);
 }
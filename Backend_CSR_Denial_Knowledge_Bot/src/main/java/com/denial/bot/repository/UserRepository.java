@@ -2,11 +2,16 @@ package com.denial.bot.repository;
 
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.denial.bot.config.SecondLevelCacheConfig;
 import com.denial.bot.entity.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     
@@ -25,11 +30,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     
     /**
-     * Find user by username and active status
+     * Find user by username and active status; answered from the query cache when the
+     * second-level cache is enabled
      * @param username the username to search for
      * @param active the active status
      * @return Optional containing user if found
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.USER_QUERIES_REGION)
+    })
     Optional<User> findByUsernameAndActive(String username, boolean active);
     
     /**
@@ -4,12 +4,18 @@ import com.denial.bot.entity.User;
 import com.denial.bot.model.RegisterRequest;
 import com.denial.bot.model.RegisterResponse;
 import com.denial.bot.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,15 +23,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Authentication service: registration, credential validation, JWT generation and validation,
- * token revocation (in-memory blacklist).
+ * token revocation (via {@link TokenRevocationStore}).
+ *
+ * Verified tokens (keyed by SHA-256 digest) and active users are cached in memory, so repeat
+ * requests with the same token neither re-verify the signature nor query the database.
+ * Token checks are timed as {@code auth.jwt.verify} and user lookups as {@code auth.user.lookup}.
  */
 @Service
 public class AuthService {
@@ -40,14 +54,54 @@ public class AuthService {
 
     private SecretKey jwtSecretKey;
 
+    // Immutable and thread-safe; built once instead of per token
+    private JwtParser jwtParser;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
     @Autowired
     private UserRepository userRepository;
 
-    // In-memory blacklist; replace with Redis for production
-    private final Map<String, Date> tokenBlacklist = new ConcurrentHashMap<>();
+    @Value("${app.auth.cache.max-tokens:50000}")
+    private long maxCachedTokens;
+
+    @Value("${app.auth.cache.max-users:10000}")
+    private long maxCachedUsers;
+
+    // Upper bound on how long a cached user/token stays trusted without going back to the database
+    @Value("${app.auth.cache.user-ttl-seconds:300}")
+    private long userCacheTtlSeconds;
+
+    // Revoked tokens, keyed by the first 64 bits of the token's SHA-256 digest
+    @Autowired
+    private TokenRevocationStore revocationStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Pre-registered so the per-request path is a plain record() call
+    private Timer jwtCachedTimer;
+    private Timer jwtVerifiedTimer;
+    private Timer jwtRejectedTimer;
+    private Timer jwtRevokedTimer;
+    private Timer userCacheTimer;
+    private Timer userDatabaseTimer;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /** A token that passed signature verification, with the user it resolved to. */
+    private record VerifiedToken(User user, long expiresAtMillis) {
+    }
+
+    private Cache<String, VerifiedToken> verifiedTokens;
+    private Cache<String, User> activeUsers;
 
     @PostConstruct
     public void init() {
@@ -56,6 +110,40 @@ public class AuthService {
             // Ensure minimum length for HMAC key (32 bytes)
             byte[] keyPadded = Arrays.copyOf(keyBytes, Math.max(32, keyBytes.length));
             jwtSecretKey = Keys.hmacShaKeyFor(keyPadded);
+            jwtParser = Jwts.parserBuilder().setSigningKey(jwtSecretKey).build();
+            long userTtlNanos = TimeUnit.SECONDS.toNanos(userCacheTtlSeconds);
+            verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(maxCachedTokens)
+                    .expireAfter(new Expiry<String, VerifiedToken>() {
+                        @Override
+                        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                            long untilExp = TimeUnit.MILLISECONDS.toNanos(value.expiresAtMillis() - System.currentTimeMillis());
+                            return Math.max(0, Math.min(untilExp, userTtlNanos));
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                            return expireAfterCreate(key, value, currentTime);
+                        }
+
+                        @Override
+                        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+                    })
+                    .recordStats()
+                    .build();
+            activeUsers = Caffeine.newBuilder()
+                    .maximumSize(maxCachedUsers)
+                    .expireAfterWrite(Duration.ofSeconds(userCacheTtlSeconds))
+                    .recordStats()
+                    .build();
+            jwtCachedTimer = jwtTimer("cached");
+            jwtVerifiedTimer = jwtTimer("verified");
+            jwtRejectedTimer = jwtTimer("rejected");
+            jwtRevokedTimer = jwtTimer("revoked");
+            userCacheTimer = userLookupTimer("cache");
+            userDatabaseTimer = userLookupTimer("database");
             logger.info("AuthService initialized, jwtExpirationMs={}", jwtExpirationMs);
         } catch (Exception ex) {
             logger.error("Failed to initialize JWT signing key", ex);
@@ -117,6 +205,7 @@ public class AuthService {
 
             User u = new User(username, email, encoded, "USER", true);
             User saved = userRepository.save(u);
+            activeUsers.put(saved.getUsername(), saved);
             logger.info("New user registered: {} ({})", saved.getUsername(), saved.getEmail());
             return new RegisterResponse(true, "Registration successful! You can now login.", saved.getUsername(), saved.getEmail());
         } catch (Exception ex) {
@@ -135,7 +224,8 @@ public class AuthService {
                 logger.warn("Empty password provided for user={}", username);
                 return false;
             }
-            Optional<User> userOpt = userRepository.findByUsernameAndActive(username.trim(), true);
+            // Cache first: a user who just registered may not have reached the read replica yet
+            Optional<User> userOpt = getUserByUsername(username.trim());
             if (userOpt.isEmpty()) {
                 logger.warn("User not found or inactive: {}", username);
                 return false;
@@ -175,7 +265,7 @@ public class AuthService {
     public String getUsernameFromToken(String token) {
         try {
             if (token == null || token.isEmpty()) return null;
-            Jws<Claims> j = Jwts.parserBuilder().setSigningKey(jwtSecretKey).build().parseClaimsJws(token);
+            Jws<Claims> j = jwtParser.parseClaimsJws(token);
             return j.getBody().getSubject();
         } catch (JwtException | IllegalArgumentException ex) {
             logger.warn("Invalid JWT token: {}", ex.getMessage());
@@ -187,18 +277,50 @@ public class AuthService {
     }
 
     public boolean validateToken(String token) {
+        return authenticate(token).isPresent();
+    }
+
+    /**
+     * Verifies the token once and resolves the active user it belongs to.
+     * This is the single authentication step used by the request filter.
+     */
+    public Optional<User> authenticate(String token) {
+        long started = System.nanoTime();
+        Timer outcome = jwtRejectedTimer;
         try {
-            if (token == null || token.isEmpty()) return false;
-            if (isTokenBlacklisted(token)) {
+            if (token == null || token.isEmpty()) return Optional.empty();
+            byte[] hash = sha256(token);
+            if (isTokenBlacklisted(hash)) {
                 logger.warn("Token is blacklisted");
-                return false;
+                outcome = jwtRevokedTimer;
+                return Optional.empty();
+            }
+            String digest = Base64.getEncoder().withoutPadding().encodeToString(hash);
+            VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+            if (cached != null) {
+                outcome = jwtCachedTimer;
+                return Optional.of(cached.user());
             }
-            String username = getUsernameFromToken(token);
-            if (username == null) return false;
-            return userRepository.findByUsernameAndActive(username, true).isPresent();
+
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            String username = claims.getSubject();
+            if (username == null) return Optional.empty();
+            Optional<User> userOpt = getUserByUsername(username);
+            if (userOpt.isPresent()) {
+                outcome = jwtVerifiedTimer;
+                if (claims.getExpiration() != null) {
+                    verifiedTokens.put(digest, new VerifiedToken(userOpt.get(), claims.getExpiration().getTime()));
+                }
+            }
+            return userOpt;
+        } catch (JwtException | IllegalArgumentException ex) {
+            logger.warn("Invalid JWT token: {}", ex.getMessage());
+            return Optional.empty();
         } catch (Exception ex) {
-            logger.error("Error validating token", ex);
-            return false;
+            logger.error("Error authenticating token", ex);
+            return Optional.empty();
+        } finally {
+            outcome.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -207,22 +329,18 @@ public class AuthService {
             if (token == null || token.isEmpty()) return;
             Date expiry = extractExpiration(token);
             if (expiry == null) expiry = new Date(System.currentTimeMillis() + 3600_000); // fallback 1h
-            tokenBlacklist.put(token, expiry);
+            byte[] hash = sha256(token);
+            revocationStore.revoke(tokenId(hash), expiry.getTime());
+            verifiedTokens.invalidate(Base64.getEncoder().withoutPadding().encodeToString(hash));
             logger.info("Token revoked until {}", expiry);
         } catch (Exception ex) {
             logger.error("Failed to revoke token", ex);
         }
     }
 
-    private boolean isTokenBlacklisted(String token) {
+    private boolean isTokenBlacklisted(byte[] hash) {
         try {
-            Date expiry = tokenBlacklist.get(token);
-            if (expiry == null) return false;
-            if (expiry.before(new Date())) {
-                tokenBlacklist.remove(token);
-                return false;
-            }
-            return true;
+            return revocationStore.isRevoked(tokenId(hash));
         } catch (Exception ex) {
             logger.error("Error checking blacklist", ex);
             return false;
@@ -231,7 +349,7 @@ public class AuthService {
 
     private Date extractExpiration(String token) {
         try {
-            Jws<Claims> j = Jwts.parserBuilder().setSigningKey(jwtSecretKey).build().parseClaimsJws(token);
+            Jws<Claims> j = jwtParser.parseClaimsJws(token);
             return j.getBody().getExpiration();
         } catch (JwtException | IllegalArgumentException ex) {
             logger.warn("Unable to extract expiration: {}", ex.getMessage());
@@ -244,14 +362,78 @@ public class AuthService {
 
     public Optional<User> getUserByUsername(String username) {
         if (username == null) return Optional.empty();
+        long started = System.nanoTime();
         try {
-            return userRepository.findByUsernameAndActive(username, true);
+            User cached = activeUsers.getIfPresent(username);
+            if (cached != null) {
+                userCacheTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return Optional.of(cached);
+            }
+            Optional<User> userOpt = userRepository.findByUsernameAndActive(username, true);
+            userDatabaseTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            userOpt.ifPresent(u -> activeUsers.put(username, u));
+            return userOpt;
         } catch (Exception ex) {
             logger.error("Error fetching user {}", username, ex);
             return Optional.empty();
         }
     }
 
+    private Timer jwtTimer(String result) {
+        return Timer.builder("auth.jwt.verify")
+                .description("Bearer token verification, including the user lookup on a cache miss")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer userLookupTimer(String source) {
+        return Timer.builder("auth.user.lookup")
+                .description("Active user lookup by username")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Deactivates a user and drops every cached credential that resolved to them.
+     */
+    @Transactional
+    public boolean deactivateUser(String username) {
+        try {
+            Optional<User> userOpt = userRepository.findByUsername(username);
+            if (userOpt.isEmpty()) return false;
+            User user = userOpt.get();
+            user.setActive(false);
+            userRepository.save(user);
+            evictUser(username);
+            logger.info("User deactivated: {}", username);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Failed to deactivate user {}", username, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Removes a user from the auth caches; call whenever the user row changes.
+     */
+    public void evictUser(String username) {
+        if (username == null) return;
+        activeUsers.invalidate(username);
+        verifiedTokens.asMap().values().removeIf(v -> username.equals(v.user().getUsername()));
+    }
+
+    /**
+     * Hit/miss statistics of the token and user caches.
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tokens", verifiedTokens.estimatedSize());
+        result.put("tokenHitRate", verifiedTokens.stats().hitRate());
+        result.put("users", activeUsers.estimatedSize());
+        result.put("userHitRate", activeUsers.stats().hitRate());
+        return result;
+    }
+
     public long getTotalUsers() {
         try {
             return userRepository.count();
@@ -261,6 +443,18 @@ public class AuthService {
         }
     }
 
+    private static byte[] sha256(String token) {
+        return SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long tokenId(byte[] hash) {
+        long id = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            id = (id << 8) | (hash[i] & 0xFF);
+        }
+        return id;
+    }
+
     private String safeTrim(String s) {
         return s == null ? null : s.trim();
     }
@@ -0,0 +1,228 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.ChatMessage;
+import com.denial.bot.repository.ChatMessageRepository;
+import com.denial.bot.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends chat messages with as few statements as possible.
+ *
+ * The ownership check and the session's updated_at bump are a single conditional UPDATE; the
+ * session row is never loaded. A single message is then one INSERT through a session reference,
+ * a list of messages one JDBC batch.
+ *
+ * The UPDATE goes through JDBC rather than JPQL: a bulk JPQL update would make Hibernate drop
+ * the whole chat session second-level cache region, so only the touched session is evicted.
+ *
+ * Appends are timed as {@code chat.messages.append} up to the end of the transaction, so the
+ * commit is included. {@link #list} reads a session back from both the hot and archive tables.
+ */
+@Service
+public class ChatMessageService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO chat_messages (session_id, role, content, content_type, metadata, metadata_ref, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String TOUCH_SQL = "UPDATE chat_sessions SET updated_at = ? WHERE id = ? AND user_id = ?";
+
+    // Hot rows keep their content inline; archived ones may reference it in content_blobs
+    private static final String LIST_SQL =
+            "SELECT id, role, content, NULL AS content_ref, content_type, metadata, metadata_ref, created_at " +
+            "FROM chat_messages WHERE session_id = ? " +
+            "UNION ALL SELECT id, role, content, content_ref, content_type, metadata, metadata_ref, created_at " +
+            "FROM chat_messages_archive WHERE session_id = ? ORDER BY created_at, id";
+
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ChatSearchIndex chatSearchIndex;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * A validated message to append.
+     */
+    public record NewMessage(String role, String content, String contentType, String metadata) {
+    }
+
+    /**
+     * Identity of an appended message.
+     */
+    public record SavedMessage(Long id, LocalDateTime createdAt) {
+    }
+
+    /**
+     * A stored message with its content and metadata resolved.
+     */
+    public record StoredMessage(Long id, String role, String content, String contentType, String metadata,
+                                LocalDateTime createdAt) {
+    }
+
+    /**
+     * All messages of a session, oldest first, from the hot table and its archive.
+     */
+    @Transactional(readOnly = true)
+    public List<StoredMessage> list(Long sessionId) {
+        return jdbcTemplate.query(LIST_SQL, (rs, rowNum) -> new StoredMessage(
+                rs.getLong("id"),
+                rs.getString("role"),
+                contentStore.resolve(rs.getString("content"), rs.getBytes("content_ref")),
+                rs.getString("content_type"),
+                contentStore.resolve(rs.getString("metadata"), rs.getBytes("metadata_ref")),
+                rs.getTimestamp("created_at").toLocalDateTime()), sessionId, sessionId);
+    }
+
+    /**
+     * Appends one message; null if the session does not exist or belongs to someone else.
+     */
+    @Transactional
+    public SavedMessage append(Long sessionId, Long userId, NewMessage message) {
+        timeUntilCompletion("single");
+        if (!touchOwned(sessionId, userId, LocalDateTime.now())) {
+            return null;
+        }
+        byte[] metadataRef = contentStore.store(message.metadata());
+        ChatMessage saved = chatMessageRepository.save(ChatMessage.builder()
+                .session(chatSessionRepository.getReferenceById(sessionId))
+                .role(message.role())
+                .content(message.content())
+                .contentType(message.contentType())
+                .metadata(metadataRef == null ? message.metadata() : null)
+                .metadataRef(metadataRef)
+                .build());
+        indexAfterCommit(userId, List.of(saved.getId()), List.of(message), saved.getCreatedAt());
+        return new SavedMessage(saved.getId(), saved.getCreatedAt());
+    }
+
+    /**
+     * Appends all messages in order in one JDBC batch; null if the session does not exist or
+     * belongs to someone else.
+     */
+    @Transactional
+    public List<SavedMessage> appendAll(Long sessionId, Long userId, List<NewMessage> messages) {
+        timeUntilCompletion("bulk");
+        LocalDateTime now = LocalDateTime.now();
+        if (!touchOwned(sessionId, userId, now)) {
+            return null;
+        }
+        Timestamp createdAt = Timestamp.valueOf(now);
+        byte[][] metadataRefs = new byte[messages.size()][];
+        for (int i = 0; i < messages.size(); i++) {
+            metadataRefs[i] = contentStore.store(messages.get(i).metadata());
+        }
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        NewMessage message = messages.get(i);
+                        ps.setLong(1, sessionId);
+                        ps.setString(2, message.role());
+                        ps.setString(3, message.content());
+                        ps.setString(4, message.contentType());
+                        ps.setString(5, metadataRefs[i] == null ? message.metadata() : null);
+                        ps.setBytes(6, metadataRefs[i]);
+                        ps.setTimestamp(7, createdAt);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return messages.size();
+                    }
+                },
+                keys);
+
+        List<SavedMessage> saved = new ArrayList<>(messages.size());
+        for (Map<String, Object> key : keys.getKeyList()) {
+            // The key column is GENERATED_KEY on MySQL and ID elsewhere
+            Number id = (Number) key.values().iterator().next();
+            saved.add(new SavedMessage(id.longValue(), now));
+        }
+        indexAfterCommit(userId, saved.stream().map(SavedMessage::id).toList(), messages, now);
+        return saved;
+    }
+
+    /**
+     * Bumps the session's updated_at if the user owns it; the cached session is evicted once the
+     * transaction has committed.
+     */
+    private boolean touchOwned(Long sessionId, Long userId, LocalDateTime now) {
+        if (jdbcTemplate.update(TOUCH_SQL, Timestamp.valueOf(now), sessionId, userId) == 0) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                secondLevelCache.evictChatSession(sessionId);
+            }
+        });
+        return true;
+    }
+
+    private void timeUntilCompletion(String mode) {
+        long started = System.nanoTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Timer.builder("chat.messages.append")
+                        .tag("mode", mode)
+                        .tag("outcome", status == STATUS_COMMITTED ? "committed" : "rolled_back")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    /**
+     * Adds the messages to the search index once the transaction has committed, so a rollback
+     * never leaves indexed rows that do not exist.
+     */
+    private void indexAfterCommit(Long userId, List<Long> ids, List<NewMessage> messages, LocalDateTime createdAt) {
+        long created = Timestamp.valueOf(createdAt).getTime();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int i = 0; i < Math.min(ids.size(), messages.size()); i++) {
+                    chatSearchIndex.addMessage(userId, ids.get(i), messages.get(i).content(), created);
+                }
+            }
+        });
+    }
+}
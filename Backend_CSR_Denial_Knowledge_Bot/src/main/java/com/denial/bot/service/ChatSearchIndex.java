@@ -0,0 +1,465 @@
+package com.denial.bot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-user inverted index over chat message content and conversation inputs.
+ *
+ * A user's index is built from the database on their first search (reads on the user_id
+ * indexes of the hot and archive tables) and then kept current as messages and conversations are written;
+ * rows written while a build is running are queued and replayed into the new index, since the
+ * build's reads may have missed them. Indexes live in a cache bounded by their estimated size in
+ * bytes; an evicted user is rebuilt on their next search. Ranking is BM25 over the postings alone,
+ * and only the requested page of rows is fetched, by primary key.
+ */
+@Service
+public class ChatSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Both tiers: rows moved by HistoryArchiver keep their ids, so existing postings stay valid
+    private static final String MESSAGES_OF_USER =
+            "SELECT m.id, m.content, NULL AS content_ref, m.created_at FROM chat_messages m " +
+            "JOIN chat_sessions s ON s.id = m.session_id WHERE s.user_id = ? " +
+            "UNION ALL SELECT a.id, a.content, a.content_ref, a.created_at FROM chat_messages_archive a " +
+            "JOIN chat_sessions s ON s.id = a.session_id WHERE s.user_id = ?";
+    private static final String CONVERSATIONS_OF_USER =
+            "SELECT id, user_input, created_at FROM conversations WHERE user_id = ? " +
+            "UNION ALL SELECT id, user_input, created_at FROM conversations_archive WHERE user_id = ?";
+
+    /**
+     * What a search hit points at.
+     */
+    public enum Kind { MESSAGE, CONVERSATION }
+
+    /**
+     * One ranked page of search results; {@code total} counts all matches.
+     */
+    public record SearchPage(int total, List<Map<String, Object>> items) {
+    }
+
+    /**
+     * A row to index.
+     */
+    private record Document(Kind kind, long id, String text, long createdAt) {
+    }
+
+    @Value("${chat.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.search.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    private Cache<Long, UserIndex> indexes;
+
+    // Users whose index is being built -> rows written meanwhile, for the build to replay
+    private final Map<Long, Queue<Document>> pendingAdds = new ConcurrentHashMap<>();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        indexes = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long userId, UserIndex index) -> index.weigh())
+                .recordStats()
+                .build();
+        logger.info("ChatSearchIndex initialized: enabled={}, maxBytes={}", enabled, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Indexes a newly written chat message; a no-op until the user's index has been built.
+     */
+    public void addMessage(Long userId, long messageId, String content, long createdAt) {
+        add(userId, new Document(Kind.MESSAGE, messageId, content, createdAt));
+    }
+
+    /**
+     * Indexes a newly written conversation; a no-op until the user's index has been built.
+     */
+    public void addConversation(Long userId, long conversationId, String userInput, long createdAt) {
+        add(userId, new Document(Kind.CONVERSATION, conversationId, userInput, createdAt));
+    }
+
+    /**
+     * Ranked matches for {@code query} in the user's chat messages and conversations, best first
+     * and newest first among equal scores.
+     */
+    public SearchPage search(Long userId, String query, int offset, int limit) {
+        searches.increment();
+        UserIndex index = indexOf(userId);
+        List<String> terms = terms(query);
+        List<long[]> hits = new ArrayList<>();   // [kind, id] of the requested page
+        List<Float> scores = new ArrayList<>();
+        int total = index.search(terms, offset, limit, hits, scores);
+        return new SearchPage(total, loadPage(userId, hits, scores));
+    }
+
+    /**
+     * Drops the user's index and builds it again from the database.
+     *
+     * @return number of indexed documents
+     */
+    public int rebuild(Long userId) {
+        indexes.invalidate(userId);
+        return indexOf(userId).size();
+    }
+
+    public Map<String, Object> getStats() {
+        long documents = 0;
+        long bytes = 0;
+        for (UserIndex index : indexes.asMap().values()) {
+            documents += index.size();
+            bytes += index.estimatedBytes();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("users", indexes.estimatedSize());
+        result.put("maxBytes", maxBytes);
+        result.put("documents", documents);
+        result.put("estimatedBytes", bytes);
+        result.put("searches", searches.sum());
+        result.put("builds", builds.sum());
+        return result;
+    }
+
+    /**
+     * Indexes a written row if the user's index exists, or queues it if the index is being built.
+     * Callers run after the row has committed, so a build that starts later reads it anyway.
+     */
+    private void add(Long userId, Document document) {
+        if (!enabled) return;
+        UserIndex index = indexes.getIfPresent(userId);
+        if (index == null) {
+            Queue<Document> queue = pendingAdds.get(userId);
+            if (queue != null) queue.add(document);
+            // The build may have finished and replayed its queue in the meantime
+            index = indexes.getIfPresent(userId);
+            if (index == null) return;
+        }
+        index.add(document);
+        reweigh(userId, index);
+    }
+
+    /**
+     * The user's index, built if absent; the first caller after a build replays the rows queued
+     * during it. The queue is dropped only once the index is in the cache, so a row queued after
+     * the replay is seen by {@link #add}'s second lookup instead.
+     */
+    private UserIndex indexOf(Long userId) {
+        UserIndex index = indexes.get(userId, this::build);
+        Queue<Document> queue = index.takePending();
+        if (queue != null) {
+            pendingAdds.remove(userId, queue);
+            for (Document document : queue) {
+                index.add(document);
+            }
+            reweigh(userId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Caffeine weighs an entry only when it is written, so an index that has grown well past its
+     * last weight is written back to have its new size counted against the bound.
+     */
+    private void reweigh(Long userId, UserIndex index) {
+        if (index.outgrewWeight()) {
+            indexes.asMap().replace(userId, index, index);
+        }
+    }
+
+    private UserIndex build(Long userId) {
+        long started = System.nanoTime();
+        Queue<Document> queue = new ConcurrentLinkedQueue<>();
+        pendingAdds.put(userId, queue);
+        UserIndex index = new UserIndex(queue);
+        try {
+            jdbcTemplate.query(MESSAGES_OF_USER, rs -> {
+                String content = contentStore.resolve(rs.getString("content"), rs.getBytes("content_ref"));
+                index.add(new Document(Kind.MESSAGE, rs.getLong("id"), content, millis(rs.getTimestamp("created_at"))));
+            }, userId, userId);
+            jdbcTemplate.query(CONVERSATIONS_OF_USER, rs -> {
+                index.add(new Document(Kind.CONVERSATION, rs.getLong("id"), rs.getString("user_input"), millis(rs.getTimestamp("created_at"))));
+            }, userId, userId);
+        } catch (RuntimeException e) {
+            pendingAdds.remove(userId, queue);
+            throw e;
+        }
+        builds.increment();
+        logger.info("🔎 Built chat search index for user {}: {} documents in {} ms",
+                userId, index.size(), (System.nanoTime() - started) / 1_000_000);
+        return index;
+    }
+
+    private List<Map<String, Object>> loadPage(Long userId, List<long[]> hits, List<Float> scores) {
+        List<Long> messageIds = new ArrayList<>();
+        List<Long> conversationIds = new ArrayList<>();
+        for (long[] hit : hits) {
+            (hit[0] == Kind.MESSAGE.ordinal() ? messageIds : conversationIds).add(hit[1]);
+        }
+        Map<Long, Map<String, Object>> messages = new HashMap<>();
+        if (!messageIds.isEmpty()) {
+            String in = placeholders(messageIds.size());
+            jdbcTemplate.query("SELECT m.id, m.session_id, m.role, m.content, NULL AS content_ref, m.content_type, m.created_at FROM chat_messages m " +
+                    "JOIN chat_sessions s ON s.id = m.session_id WHERE s.user_id = ? AND m.id IN (" + in + ") " +
+                    "UNION ALL SELECT a.id, a.session_id, a.role, a.content, a.content_ref, a.content_type, a.created_at FROM chat_messages_archive a " +
+                    "JOIN chat_sessions s ON s.id = a.session_id WHERE s.user_id = ? AND a.id IN (" + in + ")", rs -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("kind", "message");
+                item.put("id", rs.getLong("id"));
+                item.put("sessionId", rs.getLong("session_id"));
+                item.put("role", rs.getString("role"));
+                item.put("text", contentStore.resolve(rs.getString("content"), rs.getBytes("content_ref")));
+                item.put("contentType", rs.getString("content_type"));
+                item.put("createdAt", rs.getTimestamp("created_at"));
+                messages.put(rs.getLong("id"), item);
+            }, args(userId, messageIds));
+        }
+        Map<Long, Map<String, Object>> conversations = new HashMap<>();
+        if (!conversationIds.isEmpty()) {
+            String in = placeholders(conversationIds.size());
+            jdbcTemplate.query("SELECT id, user_input, output_type, created_at FROM conversations WHERE user_id = ? AND id IN (" + in + ") " +
+                    "UNION ALL SELECT id, user_input, output_type, created_at FROM conversations_archive WHERE user_id = ? AND id IN (" + in + ")", rs -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("kind", "conversation");
+                item.put("id", rs.getLong("id"));
+                item.put("text", rs.getString("user_input"));
+                item.put("outputType", rs.getString("output_type"));
+                item.put("createdAt", rs.getTimestamp("created_at"));
+                conversations.put(rs.getLong("id"), item);
+            }, args(userId, conversationIds));
+        }
+
+        List<Map<String, Object>> page = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            long[] hit = hits.get(i);
+            Map<String, Object> item = (hit[0] == Kind.MESSAGE.ordinal() ? messages : conversations).get(hit[1]);
+            if (item == null) continue; // row no longer there
+            item.put("score", scores.get(i));
+            page.add(item);
+        }
+        return page;
+    }
+
+    /**
+     * Tokens of {@code text} with denial codes joined: "CO-97", "co 97" and "co97" all become the
+     * single term "co97". The parts are not kept on their own, so under OR semantics a search
+     * for CO-97 does not match every other CO or group-97 code.
+     */
+    static List<String> terms(String text) {
+        List<String> tokens = TextTokenizer.tokenize(text);
+        List<String> terms = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String prefix = tokens.get(i);
+            String number = i + 1 < tokens.size() ? tokens.get(i + 1) : "";
+            if (prefix.length() <= 2 && prefix.chars().allMatch(Character::isLetter)
+                    && !number.isEmpty() && number.length() <= 3 && number.chars().allMatch(Character::isDigit)) {
+                terms.add(prefix + number);
+                i++;
+            } else {
+                terms.add(prefix);
+            }
+        }
+        return terms;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    /**
+     * Arguments for a hot + archive union: (userId, ids...) once per tier.
+     */
+    private static Object[] args(Long userId, List<Long> ids) {
+        Object[] args = new Object[2 * (ids.size() + 1)];
+        for (int tier = 0, at = 0; tier < 2; tier++) {
+            args[at++] = userId;
+            for (Long id : ids) {
+                args[at++] = id;
+            }
+        }
+        return args;
+    }
+
+    private static long millis(Timestamp ts) {
+        return ts == null ? 0 : ts.getTime();
+    }
+
+    /**
+     * Growable postings of one user; guarded by its own monitor. {@code bytes} tracks
+     * {@link #estimatedBytes} as arrays grow.
+     */
+    private static final class UserIndex {
+        private static final int DOCUMENT_BYTES = 1 + 8 + 8 + 4;
+        private static final int KEY_BYTES = 16;
+
+        private final Map<String, int[]> postings = new HashMap<>();  // term -> [size, doc, tf, doc, tf, ...]
+        private final Set<Long> keys = new HashSet<>();               // id << 1 | kind, so a row is indexed once
+        private byte[] kinds = new byte[64];
+        private long[] ids = new long[64];
+        private long[] createdAt = new long[64];
+        private int[] lengths = new int[64];
+        private int docs;
+        private long totalLength;
+        private long bytes = DOCUMENT_BYTES * 64L;
+        private long weighedBytes;
+        private Queue<Document> pending;
+
+        UserIndex(Queue<Document> pending) {
+            this.pending = pending;
+        }
+
+        /**
+         * The rows queued while this index was being built, once; null afterwards.
+         */
+        synchronized Queue<Document> takePending() {
+            Queue<Document> queue = pending;
+            pending = null;
+            return queue;
+        }
+
+        synchronized void add(Document document) {
+            Kind kind = document.kind();
+            long id = document.id();
+            if (!keys.add(id << 1 | kind.ordinal())) return;
+            bytes += KEY_BYTES;
+            if (docs == ids.length) {
+                int capacity = docs * 2;
+                bytes += (long) DOCUMENT_BYTES * (capacity - docs);
+                kinds = Arrays.copyOf(kinds, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            int doc = docs++;
+            kinds[doc] = (byte) kind.ordinal();
+            ids[doc] = id;
+            createdAt[doc] = document.createdAt();
+
+            List<String> terms = terms(document.text());
+            lengths[doc] = terms.size();
+            totalLength += terms.size();
+            Map<String, Integer> tf = new HashMap<>();
+            for (String term : terms) {
+                tf.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                int[] list = postings.get(e.getKey());
+                if (list == null) {
+                    list = new int[5];
+                    postings.put(e.getKey(), list);
+                    bytes += 2L * e.getKey().length() + 4L * list.length;
+                }
+                int size = list[0];
+                if (1 + size * 2 + 2 > list.length) {
+                    bytes += 4L * list.length;
+                    list = Arrays.copyOf(list, list.length * 2);
+                    postings.put(e.getKey(), list);
+                }
+                list[1 + size * 2] = doc;
+                list[2 + size * 2] = e.getValue();
+                list[0] = size + 1;
+            }
+        }
+
+        /**
+         * Scores the matching documents, fills the [offset, offset + limit) slice into {@code hits}
+         * and {@code scores}, and returns the number of matches.
+         */
+        synchronized int search(List<String> terms, int offset, int limit, List<long[]> hits, List<Float> scores) {
+            if (docs == 0 || terms.isEmpty()) return 0;
+            float avgLength = (float) totalLength / docs;
+            float[] score = new float[docs];
+            int[] matched = new int[docs];
+            int count = 0;
+            for (String term : new HashSet<>(terms)) {
+                int[] list = postings.get(term);
+                if (list == null) continue;
+                int df = list[0];
+                float idf = (float) Math.log(1 + (docs - df + 0.5) / (df + 0.5));
+                for (int i = 0; i < df; i++) {
+                    int doc = list[1 + i * 2];
+                    float tf = list[2 + i * 2];
+                    float norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                    if (score[doc] == 0) matched[count++] = doc;
+                    score[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            Integer[] ranked = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                ranked[i] = matched[i];
+            }
+            Arrays.sort(ranked, (a, b) -> score[a] != score[b]
+                    ? Float.compare(score[b], score[a])
+                    : Long.compare(createdAt[b], createdAt[a]));
+            for (int i = offset; i < Math.min(count, offset + limit); i++) {
+                int doc = ranked[i];
+                hits.add(new long[]{kinds[doc], ids[doc]});
+                scores.add(score[doc]);
+            }
+            return count;
+        }
+
+        synchronized int size() {
+            return docs;
+        }
+
+        synchronized long estimatedBytes() {
+            return bytes;
+        }
+
+        /**
+         * The cache weight: current size, capped to an int, remembered for {@link #outgrewWeight}.
+         */
+        synchronized int weigh() {
+            weighedBytes = bytes;
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        /**
+         * True once the index is a quarter (and at least 4 KB) larger than when last weighed.
+         */
+        synchronized boolean outgrewWeight() {
+            return bytes - weighedBytes > Math.max(4096, weighedBytes / 4);
+        }
+    }
+}
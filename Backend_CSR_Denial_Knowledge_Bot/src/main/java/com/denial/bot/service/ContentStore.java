@@ -0,0 +1,234 @@
+package com.denial.bot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed, deduplicated storage for large text columns ({@code conversations.ai_output},
+ * {@code chat_messages.metadata}, and message content in the archive tables).
+ *
+ * When enabled, a body of at least {@code min-bytes} is deflated and stored once in
+ * {@code content_blobs} under the SHA-256 of its bytes; the owning row keeps only the 32-byte
+ * hash in its {@code *_ref} column. Canned ML answers repeat across thousands of rows, so most
+ * writes end at the hash lookup. Reads resolve refs through a cache of decoded bodies, so a
+ * popular answer is inflated once, not once per row.
+ *
+ * A blob is written on the caller's connection, inside its transaction if there is one, with an
+ * upsert that is a no-op when the hash already exists; it commits or rolls back with the row
+ * that references it. A hash only counts as stored once that transaction has committed.
+ */
+@Service
+public class ContentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+
+    private static final short CODEC_STORED = 0;
+    private static final short CODEC_DEFLATE = 1;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO content_blobs (hash, codec, raw_length, data, created_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE hash = hash";
+    private static final String SELECT_SQL =
+            "SELECT codec, raw_length, data FROM content_blobs WHERE hash = ?";
+
+    @Value("${storage.content.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.content.min-bytes:128}")
+    private int minBytes;
+
+    @Value("${storage.content.level:6}")
+    private int level;
+
+    @Value("${storage.content.cache-size:10000}")
+    private long cacheSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LoadingCache<String, String> bodies;
+
+    // Hashes whose blob row is known to be committed; the body cache is no proof of that
+    private Cache<String, Boolean> storedHashes;
+
+    private final LongAdder blobsWritten = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        bodies = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build(this::load);
+        storedHashes = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        logger.info("ContentStore initialized: enabled={}, minBytes={}, level={}", enabled, minBytes, level);
+    }
+
+    /**
+     * Stores {@code content} as a blob and returns its hash for the owning row's ref column, or
+     * null when the content should stay inline (disabled, small, or the blob write failed).
+     */
+    public byte[] store(String content) {
+        if (!enabled) return null;
+        return put(content, true);
+    }
+
+    /**
+     * Like {@link #store} but whether or not compression is enabled, and without caching the
+     * body: used for rows moving to the cold tier, which are rarely read again.
+     */
+    public byte[] storeCold(String content) {
+        return put(content, false);
+    }
+
+    private byte[] put(String content, boolean cacheBody) {
+        if (content == null || content.length() < minBytes) return null;
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] hash = sha256(raw);
+        String key = HexFormat.of().formatHex(hash);
+        if (storedHashes.getIfPresent(key) != null) {
+            deduplicated.increment();
+            return hash;
+        }
+
+        byte[] compressed = deflate(raw);
+        boolean worthIt = compressed.length < raw.length;
+        byte[] data = worthIt ? compressed : raw;
+        try {
+            jdbcTemplate.update(INSERT_SQL,
+                    hash, worthIt ? CODEC_DEFLATE : CODEC_STORED, raw.length, data, new Timestamp(System.currentTimeMillis()));
+            blobsWritten.increment();
+            rawBytes.add(raw.length);
+            storedBytes.add(data.length);
+        } catch (DataAccessException e) {
+            logger.warn("⚠️ Failed to store content blob, keeping the content inline: {}", e.getMessage());
+            return null;
+        }
+        // Content-addressed, so the body is right for this hash whether or not the caller commits
+        if (cacheBody) bodies.put(key, content);
+        rememberAfterCommit(key);
+        return hash;
+    }
+
+    private void rememberAfterCommit(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            storedHashes.put(key, Boolean.TRUE);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                storedHashes.put(key, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * The stored text: {@code inline} when the row has no ref, otherwise the blob's body.
+     * A ref whose blob is missing resolves to {@code inline} and is looked up again next time.
+     */
+    public String resolve(String inline, byte[] ref) {
+        if (ref == null) return inline;
+        String body = bodies.get(HexFormat.of().formatHex(ref));
+        return body == null ? inline : body;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("blobsWritten", blobsWritten.sum()); // upserts, including hashes another row had already stored
+        result.put("deduplicated", deduplicated.sum());
+        result.put("rawBytes", rawBytes.sum());
+        result.put("storedBytes", storedBytes.sum());
+        if (bodies != null) {
+            result.put("cachedBodies", bodies.estimatedSize());
+            result.put("cacheHitRate", bodies.stats().hitRate());
+        }
+        return result;
+    }
+
+    // Null (nothing cached) when the blob does not exist
+    private String load(String key) {
+        List<String> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) ->
+                decode(rs.getShort("codec"), rs.getInt("raw_length"), rs.getBytes("data")), HexFormat.of().parseHex(key));
+        if (rows.isEmpty()) {
+            logger.error("❌ Content blob {} is missing", key);
+            return null;
+        }
+        return rows.get(0);
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String decode(short codec, int rawLength, byte[] data) {
+        if (codec == CODEC_STORED) return new String(data, StandardCharsets.UTF_8);
+        // The raw length is stored with the blob, so inflate straight into an exact-size buffer
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated");
+                }
+                n += read;
+            }
+            return new String(raw, 0, n, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt content blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
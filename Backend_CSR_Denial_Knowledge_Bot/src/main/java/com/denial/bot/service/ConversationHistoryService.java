@@ -0,0 +1,359 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.Conversation;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a user's conversation history without materializing all of it.
+ *
+ * Pages are keyset-paginated on (created_at, id), newest first, so every page costs one index
+ * range scan no matter how deep the client has scrolled. The streaming variant writes NDJSON
+ * straight from a JDBC cursor, keeping heap usage flat for arbitrarily large histories. It runs on
+ * small pools of its own ({@code history.stream.max-connections}, one for the primary and one for
+ * the replica when one is configured) set up like the main pool from {@code spring.datasource.hikari.*};
+ * with MySQL Connector/J their connections alone set {@code useCursorFetch}, so only those statements
+ * use server-side cursors and a long export never holds a connection of the main pool. The replica
+ * serves an export unless {@link ReplicaRouting} keeps the user on the primary after a recent write.
+ *
+ * Summary pages read neither TEXT column in full: only a prefix of user_input and no ai_output,
+ * which is loaded on demand with {@link #find(Long, Long)}.
+ *
+ * Every read covers the hot table and its archive ({@link HistoryArchiver}); callers cannot
+ * tell which tier a row came from, and cursors stay valid while rows move between them.
+ */
+@Service
+public class ConversationHistoryService {
+
+    // Hot table first, then the rows HistoryArchiver moved out of it (same ids, same columns)
+    private static final List<String> TIERS = List.of("conversations", "conversations_archive");
+
+    private static final String COLUMNS =
+            "id, user_input, ai_output, ai_output_ref, output_type, created_at, updated_at";
+
+    private static final String SUMMARY_COLUMNS =
+            "id, SUBSTRING(user_input, 1, ?) AS input_snippet, output_type, created_at, updated_at";
+
+    private static final String ORDER = " ORDER BY created_at DESC, id DESC";
+
+    @Value("${history.page.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${history.page.max-limit:500}")
+    private int maxLimit;
+
+    @Value("${history.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${history.stream.max-connections:4}")
+    private int streamMaxConnections;
+
+    @Value("${persistence.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${persistence.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${persistence.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${history.summary.snippet-length:200}")
+    private int snippetLength;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    // Pools start on their first connection, so an unused one costs nothing
+    private final List<HikariDataSource> streamingDataSources = new ArrayList<>();
+    private JdbcTemplate primaryStreamJdbcTemplate;
+    private JdbcTemplate replicaStreamJdbcTemplate;
+
+    // Same date format as the regular JSON responses, without a flush after every value
+    private ObjectWriter valueWriter;
+
+    /**
+     * Restricts a history read; null fields are not filtered on.
+     */
+    public record HistoryFilter(Long userId, String outputType, Date start, Date end) {
+
+        public static HistoryFilter all(Long userId) {
+            return new HistoryFilter(userId, null, null, null);
+        }
+    }
+
+    /**
+     * One page of history plus the cursor for the next page (null when exhausted).
+     */
+    public record HistoryPage<T>(List<T> items, String nextCursor) {
+    }
+
+    /**
+     * A conversation without its AI output, for list views.
+     */
+    public record ConversationSummary(Long id, String inputSnippet, String outputType, Date createdAt, Date updatedAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        primaryStreamJdbcTemplate = streamingTemplate(streamingPool("history-stream", dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()));
+        if (replicaUrl != null && !replicaUrl.isBlank()) {
+            replicaStreamJdbcTemplate = streamingTemplate(
+                    streamingPool("history-stream-replica", replicaUrl, replicaUsername, replicaPassword));
+        }
+        valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @PreDestroy
+    public void close() {
+        streamingDataSources.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Returns the page following {@code cursor} (or the first page when cursor is null).
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public HistoryPage<Conversation> page(HistoryFilter filter, String cursor, Integer limit) {
+        return page(COLUMNS, List.of(), filter, cursor, limit, this::mapConversation,
+                c -> new Cursor(new Timestamp(c.getCreatedAt().getTime()), c.getId()));
+    }
+
+    /**
+     * Like {@link #page} but returns {@link ConversationSummary} rows; cursors are interchangeable.
+     */
+    @Transactional(readOnly = true)
+    public HistoryPage<ConversationSummary> summaryPage(HistoryFilter filter, String cursor, Integer limit) {
+        return page(SUMMARY_COLUMNS, List.of(Math.max(1, snippetLength)), filter, cursor, limit, ConversationHistoryService::mapSummary,
+                c -> new Cursor(new Timestamp(c.createdAt().getTime()), c.id()));
+    }
+
+    /**
+     * A single conversation with its full AI output, if it exists and belongs to the user.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Conversation> find(Long userId, Long id) {
+        String sql = TIERS.stream()
+                .map(table -> "SELECT " + COLUMNS + " FROM " + table + " WHERE id = ? AND user_id = ?")
+                .collect(Collectors.joining(" UNION ALL "));
+        List<Conversation> rows = jdbcTemplate.query(sql, this::mapConversation, id, userId, id, userId);
+        return rows.stream().findFirst();
+    }
+
+    private <T> HistoryPage<T> page(String columns, List<Object> columnArgs, HistoryFilter filter, String cursor, Integer limit,
+                                    RowMapper<T> mapper, Function<T, Cursor> cursorOf) {
+        int pageSize = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        // Each tier is cut to the page on its own index, then the union is merged and cut again.
+        // One extra row tells whether another page exists.
+        for (String table : TIERS) {
+            if (sql.length() > 0) sql.append(" UNION ALL ");
+            sql.append("(SELECT ").append(columns).append(" FROM ").append(table);
+            args.addAll(columnArgs);
+            appendWhere(sql, args, filter);
+            if (after != null) {
+                sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+                args.add(after.createdAt());
+                args.add(after.createdAt());
+                args.add(after.id());
+            }
+            sql.append(ORDER).append(" LIMIT ?)");
+            args.add(pageSize + 1);
+        }
+        sql.append(ORDER).append(" LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<T> rows = jdbcTemplate.query(sql.toString(), mapper, args.toArray());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            nextCursor = cursorOf.apply(rows.get(rows.size() - 1)).encode();
+        }
+        return new HistoryPage<>(rows, nextCursor);
+    }
+
+    /**
+     * Streams the whole filtered history as NDJSON, one conversation per line, newest first.
+     */
+    public void stream(HistoryFilter filter, OutputStream out) throws IOException {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        for (String table : TIERS) {
+            if (sql.length() > 0) sql.append(" UNION ALL ");
+            sql.append("SELECT ").append(COLUMNS).append(" FROM ").append(table);
+            appendWhere(sql, args, filter);
+        }
+        sql.append(ORDER);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        // Read your own writes: a user who just wrote streams from the primary
+        boolean replica = replicaStreamJdbcTemplate != null && replicaRouting.useReplica(filter.userId());
+        JdbcTemplate template = replica ? replicaStreamJdbcTemplate : primaryStreamJdbcTemplate;
+        try {
+            template.query(sql.toString(), rs -> {
+                try {
+                    writeRow(generator, rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    private JdbcTemplate streamingTemplate(HikariDataSource pool) {
+        streamingDataSources.add(pool);
+        JdbcTemplate template = new JdbcTemplate(pool);
+        template.setFetchSize(streamFetchSize);
+        return template;
+    }
+
+    /**
+     * A read-only pool with the main pool's {@code spring.datasource.hikari.*} settings (timeouts,
+     * max lifetime, validation, data source properties), sized for exports.
+     */
+    private HikariDataSource streamingPool(String name, String url, String username, String password) {
+        // Bound the way Boot binds the primary pool; the pool starts on its first connection
+        HikariDataSource pool = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(Math.max(1, streamMaxConnections));
+        pool.setMinimumIdle(0);
+        pool.setReadOnly(true);
+        pool.setMetricRegistry(meterRegistry);
+        if (pool.getDriverClassName().startsWith("com.mysql.")) {
+            // Makes setFetchSize stream rows in batches instead of buffering the whole result set
+            pool.addDataSourceProperty("useCursorFetch", "true");
+        }
+        return pool;
+    }
+
+    private void writeRow(JsonGenerator generator, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong("id"));
+        generator.writeStringField("userInput", rs.getString("user_input"));
+        generator.writeStringField("aiOutput", contentStore.resolve(rs.getString("ai_output"), rs.getBytes("ai_output_ref")));
+        generator.writeStringField("outputType", rs.getString("output_type"));
+        generator.writeFieldName("createdAt");
+        valueWriter.writeValue(generator, toDate(rs.getTimestamp("created_at")));
+        generator.writeFieldName("updatedAt");
+        valueWriter.writeValue(generator, toDate(rs.getTimestamp("updated_at")));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void appendWhere(StringBuilder sql, List<Object> args, HistoryFilter filter) {
+        sql.append(" WHERE user_id = ?");
+        args.add(filter.userId());
+        if (filter.outputType() != null) {
+            sql.append(" AND output_type = ?");
+            args.add(filter.outputType());
+        }
+        if (filter.start() != null && filter.end() != null) {
+            sql.append(" AND created_at BETWEEN ? AND ?");
+            args.add(new Timestamp(filter.start().getTime()));
+            args.add(new Timestamp(filter.end().getTime()));
+        }
+    }
+
+    private static Date toDate(Timestamp ts) {
+        return ts == null ? null : new Date(ts.getTime());
+    }
+
+    private Conversation mapConversation(ResultSet rs, int rowNum) throws SQLException {
+        Conversation c = new Conversation();
+        c.setId(rs.getLong("id"));
+        c.setUserInput(rs.getString("user_input"));
+        c.setAiOutput(contentStore.resolve(rs.getString("ai_output"), rs.getBytes("ai_output_ref")));
+        c.setOutputType(rs.getString("output_type"));
+        c.setCreatedAt(toDate(rs.getTimestamp("created_at")));
+        c.setUpdatedAt(toDate(rs.getTimestamp("updated_at")));
+        return c;
+    }
+
+    private static ConversationSummary mapSummary(ResultSet rs, int rowNum) throws SQLException {
+        return new ConversationSummary(rs.getLong("id"), rs.getString("input_snippet"), rs.getString("output_type"),
+                toDate(rs.getTimestamp("created_at")), toDate(rs.getTimestamp("updated_at")));
+    }
+
+    /**
+     * Opaque keyset cursor: the (created_at, id) of the last row of the previous page.
+     */
+    private record Cursor(Timestamp createdAt, long id) {
+
+        String encode() {
+            String raw = createdAt.getTime() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int sep = raw.indexOf(':');
+                return new Cursor(new Timestamp(Long.parseLong(raw.substring(0, sep))), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
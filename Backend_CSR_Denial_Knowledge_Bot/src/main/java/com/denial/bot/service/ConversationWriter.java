@@ -0,0 +1,320 @@
+package com.denial.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind persistence for {@link com.denial.bot.entity.Conversation} rows.
+ *
+ * Request threads only enqueue; a single flusher thread serializes the ML responses and writes
+ * them in JDBC batches. When the queue is full the caller waits briefly and then writes its row
+ * inline, so back-pressure never drops a conversation. The queue is drained on shutdown. Each
+ * batch is inserted in one transaction; if it fails, its rows are inserted one by one so only a
+ * row the database rejects is lost.
+ *
+ * The caller's cost is timed as {@code conversation.save} (queued or inline), each JDBC batch as
+ * {@code conversation.flush} and the enqueue-to-commit delay as {@code conversation.flush.lag}.
+ */
+@Service
+public class ConversationWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO conversations (user_id, user_input, ai_output, ai_output_ref, output_type, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${conversation.writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${conversation.writer.batch-size:100}")
+    private int batchSize;
+
+    @Value("${conversation.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${conversation.writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ChatSearchIndex chatSearchIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    private TransactionTemplate batchTransaction;
+    private BlockingQueue<PendingConversation> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder inlineWrites = new LongAdder();
+    private final LongAdder directWrites = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchFallbacks = new LongAdder();
+    private final AtomicLong lastFlushLagMs = new AtomicLong();
+    private final AtomicLong maxFlushLagMs = new AtomicLong();
+
+    private Timer queuedSaveTimer;
+    private Timer inlineSaveTimer;
+    private Timer flushTimer;
+    private Timer flushLagTimer;
+
+    /**
+     * A conversation waiting to be written.
+     */
+    public record PendingConversation(Long userId, String userInput, Map<String, Object> response, long enqueuedAt) {
+    }
+
+    @PostConstruct
+    public void start() {
+        batchTransaction = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        queuedSaveTimer = Timer.builder("conversation.save").tag("path", "queued").register(meterRegistry);
+        inlineSaveTimer = Timer.builder("conversation.save").tag("path", "inline").register(meterRegistry);
+        flushTimer = Timer.builder("conversation.flush").description("JDBC batch insert of queued conversations").register(meterRegistry);
+        flushLagTimer = Timer.builder("conversation.flush.lag").description("Oldest row's wait from enqueue to commit").register(meterRegistry);
+        Gauge.builder("conversation.writer.queue", queue, BlockingQueue::size).register(meterRegistry);
+        FunctionCounter.builder("conversation.writer.rows", written, LongAdder::sum).tag("result", "written").register(meterRegistry);
+        FunctionCounter.builder("conversation.writer.rows", failed, LongAdder::sum).tag("result", "failed").register(meterRegistry);
+        running = true;
+        flusher = new Thread(this::runFlusher, "conversation-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("ConversationWriter started: capacity={}, batchSize={}, flushIntervalMs={}", queueCapacity, batchSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the flusher did not get to is written on the shutdown thread
+        List<PendingConversation> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += Math.max(1, batchSize)) {
+            writeBatch(rest.subList(i, Math.min(rest.size(), i + Math.max(1, batchSize))));
+        }
+        logger.info("ConversationWriter stopped: written={}, failed={}", written.sum(), failed.sum());
+    }
+
+    /**
+     * Queues a conversation for persistence.
+     */
+    public void enqueue(Long userId, String userInput, Map<String, Object> response) {
+        long started = System.nanoTime();
+        PendingConversation item = new PendingConversation(userId, userInput, response, System.currentTimeMillis());
+        enqueued.increment();
+        // The row is written later on the flusher thread; the user's history reads stay on the primary meanwhile
+        replicaRouting.markWrite(userId);
+        try {
+            if (running && queue.offer(item, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                queuedSaveTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inlineWrites.increment();
+        logger.warn("⚠️ Conversation queue full or stopped, writing inline");
+        writeBatch(List.of(item));
+        inlineSaveTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes the given conversations right away in JDBC batches on the calling thread, bypassing
+     * the queue. Used by batch requests that already hold all their rows; counted as directWrites.
+     */
+    public void writeAll(List<PendingConversation> items) {
+        directWrites.add(items.size());
+        items.stream().map(PendingConversation::userId).distinct().forEach(replicaRouting::markWrite);
+        for (int i = 0; i < items.size(); i += Math.max(1, batchSize)) {
+            writeBatch(items.subList(i, Math.min(items.size(), i + Math.max(1, batchSize))));
+        }
+    }
+
+    private void runFlusher() {
+        List<PendingConversation> batch = new ArrayList<>(Math.max(1, batchSize));
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingConversation first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, batchSize) - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                logger.error("❌ Conversation flusher error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingConversation> batch) {
+        if (batch.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        List<PendingConversation> items = new ArrayList<>(batch.size());
+        long oldest = Long.MAX_VALUE;
+        for (PendingConversation item : batch) {
+            try {
+                rows.add(toRow(item));
+                items.add(item);
+                oldest = Math.min(oldest, item.enqueuedAt());
+            } catch (Exception e) {
+                failed.increment();
+                logger.error("❌ Failed to serialize conversation for user {}", item.userId(), e);
+            }
+        }
+        if (rows.isEmpty()) return;
+
+        long started = System.nanoTime();
+        List<PendingConversation> stored = items;
+        List<Long> ids;
+        try {
+            // One transaction, so a failed batch leaves no partial rows behind for the retry
+            ids = batchTransaction.execute(status -> insert(rows));
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batches.increment();
+        } catch (Exception e) {
+            if (rows.size() == 1) {
+                failed.increment();
+                logger.error("❌ Failed to write conversation for user {}", items.get(0).userId(), e);
+                return;
+            }
+            batchFallbacks.increment();
+            logger.warn("⚠️ Batch of {} conversations failed, writing them one by one: {}", rows.size(), e.getMessage());
+            stored = new ArrayList<>(rows.size());
+            ids = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    ids.add(insert(Collections.singletonList(rows.get(i))).get(0));
+                    stored.add(items.get(i));
+                } catch (Exception rowError) {
+                    failed.increment();
+                    logger.error("❌ Failed to write conversation for user {}", items.get(i).userId(), rowError);
+                }
+            }
+        }
+        written.add(ids.size());
+        // Generated ids let the search index pick up the new rows
+        for (int i = 0; i < ids.size(); i++) {
+            PendingConversation item = stored.get(i);
+            chatSearchIndex.addConversation(item.userId(), ids.get(i), item.userInput(), item.enqueuedAt());
+        }
+        long lag = System.currentTimeMillis() - oldest;
+        lastFlushLagMs.set(lag);
+        maxFlushLagMs.accumulateAndGet(lag, Math::max);
+        flushLagTimer.record(lag, TimeUnit.MILLISECONDS);
+        logger.debug("💾 Flushed {} conversations (lag {} ms)", ids.size(), lag);
+    }
+
+    /**
+     * Inserts the rows as one JDBC batch and returns their generated ids, in order.
+     */
+    private List<Long> insert(List<Object[]> rows) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        new ArgumentPreparedStatementSetter(rows.get(i)).setValues(ps);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keys);
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> key : keys.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object[] toRow(PendingConversation item) throws Exception {
+        Map<String, Object> innerResponse = (Map<String, Object>) item.response().get("response");
+        String outputType = innerResponse.get("type").toString();
+        String aiOutput = objectMapper.writeValueAsString(item.response());
+        byte[] ref = contentStore.store(aiOutput);
+        Timestamp createdAt = new Timestamp(item.enqueuedAt());
+        return new Object[]{item.userId(), item.userInput(), ref == null ? aiOutput : "", ref, outputType, createdAt, createdAt};
+    }
+
+    /**
+     * Durability and lag counters for monitoring.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queued", queue.size());
+        result.put("capacity", queueCapacity);
+        result.put("enqueued", enqueued.sum());
+        result.put("written", written.sum());
+        result.put("failed", failed.sum());
+        result.put("inlineWrites", inlineWrites.sum());
+        result.put("directWrites", directWrites.sum());
+        result.put("batches", batches.sum());
+        result.put("batchFallbacks", batchFallbacks.sum());
+        result.put("lastFlushLagMs", lastFlushLagMs.get());
+        result.put("maxFlushLagMs", maxFlushLagMs.get());
+        return result;
+    }
+}
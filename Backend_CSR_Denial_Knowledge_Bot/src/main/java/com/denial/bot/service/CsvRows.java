@@ -0,0 +1,92 @@
+package com.denial.bot.service;
+
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Minimal reader for the bundled knowledge-base CSVs: a header row followed by RFC 4180 rows
+ * (quoted fields may contain commas and doubled quotes, but not line breaks).
+ */
+final class CsvRows {
+
+    private CsvRows() {
+    }
+
+    /**
+     * Calls {@code rowHandler} for every data row, with fields ordered as in {@code columns}.
+     *
+     * @throws IOException              if the resource cannot be read
+     * @throws IllegalArgumentException if a requested column is missing from the header
+     */
+    static int read(Resource resource, String[] columns, Consumer<String[]> rowHandler) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) return 0;
+            if (header.startsWith("\uFEFF")) header = header.substring(1);
+            List<String> names = split(header);
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                positions.put(names.get(i).trim(), i);
+            }
+            int[] indexes = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                Integer position = positions.get(columns[i]);
+                if (position == null) throw new IllegalArgumentException("Missing column " + columns[i] + " in " + resource);
+                indexes[i] = position;
+            }
+
+            int rows = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                List<String> fields = split(line);
+                String[] row = new String[columns.length];
+                for (int i = 0; i < indexes.length; i++) {
+                    row[i] = indexes[i] < fields.size() ? fields.get(indexes[i]).trim() : "";
+                }
+                rowHandler.accept(row);
+                rows++;
+            }
+            return rows;
+        }
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,168 @@
+package com.denial.bot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of denial_reason.csv keyed by (user_code, denial_code).
+ *
+ * Each code is packed into an int (two letters plus the numeric code) and kept in a sorted
+ * array with parallel description/action arrays, so a lookup is a binary search over a few
+ * hundred ints. Code queries found here are answered locally in the same shape as the ML
+ * API's direct lookup; everything else still goes to the ML API.
+ */
+@Service
+public class DenialCodeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DenialCodeIndex.class);
+
+    private static final String[] COLUMNS = {"user_code", "denial_code", "description", "suggested_action"};
+
+    // The whole query is a code: "CO-45", "pr 96", "OA18", optionally "denial code ..."
+    private static final Pattern EXACT_CODE = Pattern.compile(
+            "^\\s*(?:denial\\s+)?(?:code\\s+)?([a-z]{1,2})[\\s-]?(\\d{1,3})\\s*[?.!]?\\s*$");
+
+    // Same rule as the ML service's direct lookup: first code-like token in the query
+    private static final Pattern EMBEDDED_CODE = Pattern.compile("([a-z]{1,2})-?(\\d{1,3})");
+
+    @Value("${knowledge.denial.enabled:true}")
+    private boolean enabled;
+
+    @Value("${knowledge.denial.dataset:classpath:datasets/denial_reason.csv}")
+    private String datasetLocation;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private int[] keys = new int[0];
+    private String[] descriptions = new String[0];
+    private String[] actions = new String[0];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            logger.info("DenialCodeIndex disabled");
+            return;
+        }
+        Resource resource = resourceLoader.getResource(datasetLocation);
+        if (!resource.exists()) {
+            logger.warn("⚠️ Denial dataset not found at {}, all queries go to the ML API", datasetLocation);
+            return;
+        }
+        try {
+            Map<Integer, String[]> rows = new HashMap<>();
+            Map<String, String> strings = new HashMap<>();
+            CsvRows.read(resource, COLUMNS, row -> {
+                int key = pack(row[0], row[1]);
+                // First row wins, as with the ML service's lookup
+                if (key >= 0) rows.putIfAbsent(key, new String[]{
+                        strings.computeIfAbsent(row[2], s -> s),
+                        strings.computeIfAbsent(row[3], s -> s)});
+            });
+
+            int[] sortedKeys = rows.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            String[] desc = new String[sortedKeys.length];
+            String[] act = new String[sortedKeys.length];
+            for (int i = 0; i < sortedKeys.length; i++) {
+                String[] value = rows.get(sortedKeys[i]);
+                desc[i] = value[0];
+                act[i] = value[1];
+            }
+            descriptions = desc;
+            actions = act;
+            keys = sortedKeys;
+            logger.info("DenialCodeIndex loaded {} codes ({} distinct texts) from {}", keys.length, strings.size(), datasetLocation);
+        } catch (Exception e) {
+            logger.error("❌ Failed to load denial dataset from {}", datasetLocation, e);
+        }
+    }
+
+    /**
+     * Answers {@code query} locally if it is a known denial code lookup.
+     *
+     * @return an ML-API-shaped direct lookup response, or null if the ML API should handle it
+     */
+    public Map<String, Object> lookup(String query) {
+        if (query == null || keys.length == 0) return null;
+        String lower = query.toLowerCase(Locale.ROOT);
+        Matcher matcher = EXACT_CODE.matcher(lower);
+        if (!matcher.matches()) {
+            matcher = EMBEDDED_CODE.matcher(lower);
+            if (!matcher.find()) {
+                misses.increment();
+                return null;
+            }
+        }
+        int index = Arrays.binarySearch(keys, pack(matcher.group(1), matcher.group(2)));
+        if (index < 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return response(index);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("codes", keys.length);
+        result.put("hits", hits.sum());
+        result.put("misses", misses.sum());
+        return result;
+    }
+
+    private Map<String, Object> response(int index) {
+        Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("type", "denial_explanation");
+        inner.put("description", descriptions[index]);
+        inner.put("action", actions[index]);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", true);
+        result.put("response", inner);
+        result.put("source", "direct_lookup");
+        return result;
+    }
+
+    /**
+     * Packs a (user_code, denial_code) pair as [letter1][letter2][16-bit code]; -1 if not a code.
+     */
+    static int pack(String userCode, String denialCode) {
+        if (userCode == null || denialCode == null) return -1;
+        String letters = userCode.trim().toUpperCase(Locale.ROOT);
+        String digits = denialCode.trim();
+        if (letters.isEmpty() || letters.length() > 2 || digits.isEmpty() || digits.length() > 4) return -1;
+        int code = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            code = code * 10 + (c - '0');
+        }
+        // Codes compare as text in the dataset, so "045" is not "45"
+        if (digits.length() > 1 && digits.charAt(0) == '0') return -1;
+        int first = letters.charAt(0);
+        int second = letters.length() == 2 ? letters.charAt(1) : 0;
+        if (first < 'A' || first > 'Z' || (second != 0 && (second < 'A' || second > 'Z'))) return -1;
+        return (first << 24) | (second << 16) | code;
+    }
+}
@@ -0,0 +1,234 @@
+package com.denial.bot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BM25 inverted index over the denial descriptions and suggested actions.
+ *
+ * Used as a local fallback for free-text questions when the ML API is down or still warming
+ * up. Postings are primitive arrays per term (doc ids and term frequencies), so a search is a
+ * few array scans into a float accumulator.
+ */
+@Service
+public class DenialSearchIndex implements QueryFallback {
+
+    private static final Logger logger = LoggerFactory.getLogger(DenialSearchIndex.class);
+
+    private static final String[] COLUMNS = {"user_code", "denial_code", "description", "suggested_action"};
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    @Value("${knowledge.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${knowledge.denial.dataset:classpath:datasets/denial_reason.csv}")
+    private String datasetLocation;
+
+    @Value("${knowledge.search.max-results:3}")
+    private int maxResults;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private volatile Index index = new Index(new String[0][], Map.of(), new int[0][], new int[0][], new float[0], 0);
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+
+    /**
+     * A scored denial row.
+     */
+    public record Match(String code, String description, String action, float score) {
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            logger.info("DenialSearchIndex disabled");
+            return;
+        }
+        Resource resource = resourceLoader.getResource(datasetLocation);
+        if (!resource.exists()) {
+            logger.warn("⚠️ Denial dataset not found at {}, no local search fallback", datasetLocation);
+            return;
+        }
+        try {
+            List<String[]> docs = new ArrayList<>();
+            CsvRows.read(resource, COLUMNS, docs::add);
+            index = Index.build(docs);
+            logger.info("DenialSearchIndex built: {} documents, {} terms", index.docs.length, index.termIds.size());
+        } catch (Exception e) {
+            logger.error("❌ Failed to build denial search index from {}", datasetLocation, e);
+        }
+    }
+
+    /**
+     * Best BM25 matches for {@code query}, highest score first; empty if no term matches.
+     */
+    public List<Match> search(String query, int limit) {
+        searches.increment();
+        Index idx = index;
+        List<String> terms = TextTokenizer.tokenize(query);
+        if (terms.isEmpty() || idx.docs.length == 0) return List.of();
+
+        float[] scores = new float[idx.docs.length];
+        boolean any = false;
+        for (String term : new HashSet<>(terms)) {
+            Integer termId = idx.termIds.get(term);
+            if (termId == null) continue;
+            any = true;
+            int[] docIds = idx.postingDocs[termId];
+            int[] freqs = idx.postingFreqs[termId];
+            float idf = (float) Math.log(1 + (idx.docs.length - docIds.length + 0.5) / (docIds.length + 0.5));
+            for (int i = 0; i < docIds.length; i++) {
+                int doc = docIds[i];
+                float tf = freqs[i];
+                float norm = K1 * (1 - B + B * idx.docLengths[doc] / idx.avgDocLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+        if (!any) return List.of();
+
+        // Partial selection of the top `limit` documents
+        int k = Math.min(limit, scores.length);
+        int[] top = new int[k];
+        Arrays.fill(top, -1);
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] <= 0) continue;
+            int pos = k - 1;
+            if (top[pos] >= 0 && scores[top[pos]] >= scores[doc]) continue;
+            while (pos > 0 && (top[pos - 1] < 0 || scores[top[pos - 1]] < scores[doc])) {
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            top[pos] = doc;
+        }
+        List<Match> matches = new ArrayList<>(k);
+        for (int doc : top) {
+            if (doc < 0) break;
+            String[] row = idx.docs[doc];
+            matches.add(new Match(row[0] + "-" + row[1], row[2], row[3], scores[doc]));
+        }
+        return matches;
+    }
+
+    /**
+     * Answers {@code query} from the local index, in the ML API's semantic response shape and
+     * marked {@code fallback: true}; null if nothing relevant is indexed.
+     */
+    @Override
+    public Map<String, Object> answer(String query) {
+        List<Match> matches = search(query, Math.max(1, maxResults));
+        if (matches.isEmpty()) return null;
+        answered.increment();
+
+        Match best = matches.get(0);
+        Map<String, Object> inner = new LinkedHashMap<>();
+        inner.put("type", "semantic_help");
+        inner.put("message", "Denial " + best.code() + ": " + best.description() + ". Suggested action: " + best.action());
+        inner.put("matches", matches);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", true);
+        result.put("response", inner);
+        result.put("source", "local_search");
+        result.put("fallback", true);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("documents", index.docs.length);
+        result.put("terms", index.termIds.size());
+        result.put("searches", searches.sum());
+        result.put("answered", answered.sum());
+        return result;
+    }
+
+    /**
+     * Immutable index snapshot.
+     */
+    private static final class Index {
+        final String[][] docs;              // user_code, denial_code, description, suggested_action
+        final Map<String, Integer> termIds;
+        final int[][] postingDocs;          // per term: ascending doc ids
+        final int[][] postingFreqs;         // per term: term frequency in the matching doc
+        final float[] docLengths;
+        final float avgDocLength;
+
+        Index(String[][] docs, Map<String, Integer> termIds, int[][] postingDocs, int[][] postingFreqs,
+              float[] docLengths, float avgDocLength) {
+            this.docs = docs;
+            this.termIds = termIds;
+            this.postingDocs = postingDocs;
+            this.postingFreqs = postingFreqs;
+            this.docLengths = docLengths;
+            this.avgDocLength = avgDocLength;
+        }
+
+        static Index build(List<String[]> rows) {
+            Map<String, Integer> termIds = new HashMap<>();
+            List<int[]> postings = new ArrayList<>();  // growable posting lists: [size, doc, tf, doc, tf, ...]
+            float[] docLengths = new float[rows.size()];
+            long totalLength = 0;
+            for (int doc = 0; doc < rows.size(); doc++) {
+                String[] row = rows.get(doc);
+                // The code itself is searchable both joined ("co45") and split ("co", "45")
+                String text = row[0] + row[1] + " " + row[0] + " " + row[1] + " " + row[2] + " " + row[3];
+                Map<Integer, Integer> tf = new LinkedHashMap<>();
+                List<String> tokens = TextTokenizer.tokenize(text);
+                for (String token : tokens) {
+                    int termId = termIds.computeIfAbsent(token, t -> {
+                        postings.add(new int[]{0, 0, 0, 0, 0});
+                        return postings.size() - 1;
+                    });
+                    tf.merge(termId, 1, Integer::sum);
+                }
+                for (Map.Entry<Integer, Integer> e : tf.entrySet()) {
+                    int[] list = postings.get(e.getKey());
+                    int size = list[0];
+                    if (1 + size * 2 + 2 > list.length) {
+                        list = Arrays.copyOf(list, list.length * 2);
+                        postings.set(e.getKey(), list);
+                    }
+                    list[1 + size * 2] = doc;
+                    list[2 + size * 2] = e.getValue();
+                    list[0] = size + 1;
+                }
+                docLengths[doc] = tokens.size();
+                totalLength += tokens.size();
+            }
+
+            int[][] postingDocs = new int[postings.size()][];
+            int[][] postingFreqs = new int[postings.size()][];
+            for (int t = 0; t < postings.size(); t++) {
+                int[] list = postings.get(t);
+                int size = list[0];
+                postingDocs[t] = new int[size];
+                postingFreqs[t] = new int[size];
+                for (int i = 0; i < size; i++) {
+                    postingDocs[t][i] = list[1 + i * 2];
+                    postingFreqs[t][i] = list[2 + i * 2];
+                }
+            }
+            float avg = rows.isEmpty() ? 0 : (float) totalLength / rows.size();
+            return new Index(rows.toArray(new String[0][]), termIds, postingDocs, postingFreqs, docLengths, avg);
+        }
+    }
+}
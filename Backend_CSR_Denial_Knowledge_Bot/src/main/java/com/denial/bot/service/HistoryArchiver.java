@@ -0,0 +1,306 @@
+package com.denial.bot.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves conversations and chat messages older than {@code archive.min-age-days} out of the hot
+ * tables into {@code conversations_archive} and {@code chat_messages_archive}, where
+ * {@link ConversationHistoryService}, {@link ChatMessageService#list} and {@link ChatSearchIndex}
+ * still find them under the same ids.
+ *
+ * Rows created before the cutoff are walked in (created_at, id) order, {@code chunk-size} at a time,
+ * with a keyset on that pair; ids are not relied on to follow creation time, since write-behind
+ * batches and imports can insert an older row after a newer one. A chunk is
+ * read and its bodies deflated into content_blobs ({@link ContentStore#storeCold}) outside any
+ * transaction; only the archive insert and the hot delete share a short transaction, and chunks
+ * are separated by a pause so the job never holds locks for long. Runs on its own thread, not
+ * the shared scheduler.
+ */
+@Service
+public class HistoryArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryArchiver.class);
+
+    private static final String SELECT_CONVERSATIONS =
+            "SELECT id, user_id, user_input, ai_output, ai_output_ref, output_type, created_at, updated_at " +
+            "FROM conversations WHERE created_at < ? AND (created_at > ? OR (created_at = ? AND id > ?)) " +
+            "ORDER BY created_at, id LIMIT ?";
+    private static final String INSERT_CONVERSATION =
+            "INSERT INTO conversations_archive (id, user_id, user_input, ai_output, ai_output_ref, output_type, created_at, updated_at, archived_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_MESSAGES =
+            "SELECT id, session_id, role, content, content_type, metadata, metadata_ref, created_at " +
+            "FROM chat_messages WHERE created_at < ? AND (created_at > ? OR (created_at = ? AND id > ?)) " +
+            "ORDER BY created_at, id LIMIT ?";
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO chat_messages_archive (id, session_id, role, content, content_ref, content_type, metadata, metadata_ref, created_at, archived_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.min-age-days:180}")
+    private long minAgeDays;
+
+    @Value("${archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${archive.chunk-pause-ms:100}")
+    private long chunkPauseMs;
+
+    @Value("${archive.interval-ms:3600000}")
+    private long intervalMs;
+
+    @Value("${archive.initial-delay-ms:60000}")
+    private long initialDelayMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate chunkTransaction;
+    private ScheduledExecutorService executor;
+    private Timer conversationChunkTimer;
+    private Timer messageChunkTimer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder conversationsArchived = new LongAdder();
+    private final LongAdder messagesArchived = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private volatile Timestamp lastCutoff;
+    private volatile long lastRunMs;
+
+    /**
+     * Rows moved by one run, per table.
+     */
+    public record ArchiveRun(long conversations, long messages) {
+    }
+
+    /**
+     * Keyset position of the walk: the (created_at, id) of the last row looked at.
+     */
+    private record Position(Timestamp createdAt, long id) {
+
+        static final Position START = new Position(new Timestamp(0), 0);
+    }
+
+    /**
+     * One chunk's outcome: rows moved, last row looked at, and whether the walk is over.
+     */
+    private record Chunk(int moved, Position last, boolean done) {
+    }
+
+    @PostConstruct
+    public void init() {
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        conversationChunkTimer = chunkTimer("conversations");
+        messageChunkTimer = chunkTimer("chat_messages");
+        FunctionCounter.builder("archive.rows", conversationsArchived, LongAdder::sum).tag("table", "conversations").register(meterRegistry);
+        FunctionCounter.builder("archive.rows", messagesArchived, LongAdder::sum).tag("table", "chat_messages").register(meterRegistry);
+        if (!enabled) {
+            logger.info("HistoryArchiver disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "history-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runScheduled, initialDelayMs, Math.max(1, intervalMs), TimeUnit.MILLISECONDS);
+        logger.info("HistoryArchiver started: minAgeDays={}, chunkSize={}, intervalMs={}", minAgeDays, chunkSize, intervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * Archives everything created before {@code cutoff}; returns null if a run is already in progress.
+     */
+    public ArchiveRun archiveOlderThan(Timestamp cutoff) {
+        if (!running.compareAndSet(false, true)) return null;
+        long started = System.currentTimeMillis();
+        try {
+            long conversations = moveAll(cutoff, this::moveConversations, conversationChunkTimer);
+            long messages = moveAll(cutoff, this::moveMessages, messageChunkTimer);
+            runs.increment();
+            lastCutoff = cutoff;
+            lastRunMs = System.currentTimeMillis() - started;
+            if (conversations + messages > 0) {
+                logger.info("🗄️ Archived {} conversations and {} chat messages older than {} in {} ms",
+                        conversations, messages, cutoff, lastRunMs);
+            }
+            return new ArchiveRun(conversations, messages);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("minAgeDays", minAgeDays);
+        result.put("running", running.get());
+        result.put("runs", runs.sum());
+        result.put("conversationsArchived", conversationsArchived.sum());
+        result.put("messagesArchived", messagesArchived.sum());
+        result.put("lastCutoff", lastCutoff);
+        result.put("lastRunMs", lastRunMs);
+        return result;
+    }
+
+    private void runScheduled() {
+        try {
+            archiveOlderThan(new Timestamp(System.currentTimeMillis() - Duration.ofDays(minAgeDays).toMillis()));
+        } catch (Exception e) {
+            logger.error("❌ History archival run failed", e);
+        }
+    }
+
+    private long moveAll(Timestamp cutoff, ChunkMover mover, Timer timer) {
+        long moved = 0;
+        Position after = Position.START;
+        while (!Thread.currentThread().isInterrupted()) {
+            long started = System.nanoTime();
+            Chunk chunk = mover.move(after, cutoff);
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            moved += chunk.moved();
+            after = chunk.last();
+            if (chunk.done()) break;
+            try {
+                Thread.sleep(chunkPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return moved;
+    }
+
+    private Chunk moveConversations(Position after, Timestamp cutoff) {
+        List<Object[]> rows = new ArrayList<>();
+        boolean done = readChunk(SELECT_CONVERSATIONS, after, cutoff, rows, rs -> {
+            byte[] ref = rs.getBytes("ai_output_ref");
+            String aiOutput = rs.getString("ai_output");
+            if (ref == null) {
+                ref = contentStore.storeCold(aiOutput);
+                if (ref != null) aiOutput = "";
+            }
+            return new Object[]{rs.getLong("id"), rs.getLong("user_id"), rs.getString("user_input"), aiOutput, ref,
+                    rs.getString("output_type"), rs.getTimestamp("created_at"), rs.getTimestamp("updated_at"), null};
+        });
+        int moved = moveRows(rows, INSERT_CONVERSATION, "conversations");
+        conversationsArchived.add(moved);
+        return new Chunk(moved, last(rows, 6, after), done);
+    }
+
+    private Chunk moveMessages(Position after, Timestamp cutoff) {
+        List<Object[]> rows = new ArrayList<>();
+        boolean done = readChunk(SELECT_MESSAGES, after, cutoff, rows, rs -> {
+            String content = rs.getString("content");
+            byte[] contentRef = contentStore.storeCold(content);
+            if (contentRef != null) content = "";
+            String metadata = rs.getString("metadata");
+            byte[] metadataRef = rs.getBytes("metadata_ref");
+            if (metadataRef == null) {
+                metadataRef = contentStore.storeCold(metadata);
+                if (metadataRef != null) metadata = null;
+            }
+            return new Object[]{rs.getLong("id"), rs.getLong("session_id"), rs.getString("role"), content, contentRef,
+                    rs.getString("content_type"), metadata, metadataRef, rs.getTimestamp("created_at"), null};
+        });
+        int moved = moveRows(rows, INSERT_MESSAGE, "chat_messages");
+        messagesArchived.add(moved);
+        return new Chunk(moved, last(rows, 8, after), done);
+    }
+
+    /**
+     * Reads up to chunk-size rows older than the cutoff following {@code after} into archive rows.
+     * Returns whether the walk is over.
+     */
+    private boolean readChunk(String sql, Position after, Timestamp cutoff, List<Object[]> rows, ArchiveRowMapper mapper) {
+        int limit = Math.max(1, chunkSize);
+        jdbcTemplate.query(sql, rs -> {
+            rows.add(mapper.map(rs));
+        }, cutoff, after.createdAt(), after.createdAt(), after.id(), limit);
+        return rows.size() < limit;
+    }
+
+    private static Position last(List<Object[]> rows, int createdAtColumn, Position after) {
+        if (rows.isEmpty()) return after;
+        Object[] row = rows.get(rows.size() - 1);
+        return new Position((Timestamp) row[createdAtColumn], (long) row[0]);
+    }
+
+    private int moveRows(List<Object[]> rows, String insertSql, String table) {
+        if (rows.isEmpty()) return 0;
+        Timestamp archivedAt = new Timestamp(System.currentTimeMillis());
+        List<Object> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            row[row.length - 1] = archivedAt;
+            ids.add(row[0]);
+        }
+        String deleteSql = "DELETE FROM " + table + " WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+        return chunkTransaction.execute(status -> {
+            jdbcTemplate.batchUpdate(insertSql, rows);
+            int deleted = jdbcTemplate.update(deleteSql, ids.toArray());
+            if (deleted != rows.size()) {
+                throw new IllegalStateException("Archived " + rows.size() + " " + table + " rows but deleted " + deleted);
+            }
+            return deleted;
+        });
+    }
+
+    private Timer chunkTimer(String table) {
+        return Timer.builder("archive.chunk")
+                .description("Read, compress and move of one archival chunk")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ChunkMover {
+        Chunk move(Position after, Timestamp cutoff);
+    }
+
+    @FunctionalInterface
+    private interface ArchiveRowMapper {
+        Object[] map(ResultSet rs) throws SQLException;
+    }
+}
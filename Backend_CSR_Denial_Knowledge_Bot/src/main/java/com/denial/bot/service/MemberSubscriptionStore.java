@@ -0,0 +1,461 @@
+package com.denial.bot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Columnar in-memory copy of member_subscription.csv.
+ *
+ * Each subscription row is spread over primitive columns: member ID and name as UTF-8 in one
+ * shared byte array, a dictionary-encoded plan ID, epoch-day ints for the effective and end
+ * dates and one bit for Active/Inactive. An open-addressing hash index on member ID points at
+ * the member's first row; further rows of the same member are chained.
+ *
+ * Active rows are also indexed by date, overall and per plan: row ids sorted by effective day,
+ * plus the end days sorted on their own. The number of subscriptions active on a day is then two
+ * binary searches, and listing them walks back from the latest effective day until the page is full.
+ *
+ * The dataset is re-read when its last-modified time changes ({@code knowledge.members.reload-check-ms});
+ * readers keep the column set they started with and see the new one on their next call.
+ */
+@Service
+public class MemberSubscriptionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemberSubscriptionStore.class);
+
+    private static final String[] COLUMNS = {"member_id", "member_name", "plan_id", "effective_date", "end_date", "status"};
+
+    private static final int NO_END = Integer.MAX_VALUE;
+
+    @Value("${knowledge.members.enabled:true}")
+    private boolean enabled;
+
+    @Value("${knowledge.members.dataset:classpath:datasets/member_subscription.csv}")
+    private String datasetLocation;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private volatile Columns columns = new Builder().build();
+    private volatile long loadedModified = -1;
+    private volatile int reloads;
+
+    /**
+     * One subscription row of a member.
+     */
+    public record Subscription(String memberId, String memberName, String planId,
+                               LocalDate effectiveDate, LocalDate endDate, boolean active) {
+
+        /** Active status and the date within [effectiveDate, endDate]. */
+        public boolean isActiveOn(LocalDate date) {
+            return active && !date.isBefore(effectiveDate) && (endDate == null || !date.isAfter(endDate));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("MemberSubscriptionStore disabled");
+            return;
+        }
+        reload();
+    }
+
+    /**
+     * Re-reads the dataset into a new column set and swaps it in; on failure the current one stays.
+     *
+     * @return whether a new column set was installed
+     */
+    public synchronized boolean reload() {
+        Resource resource = resourceLoader.getResource(datasetLocation);
+        if (!resource.exists()) {
+            logger.warn("⚠️ Member dataset not found at {}, member lookups are unavailable", datasetLocation);
+            return false;
+        }
+        try {
+            long started = System.nanoTime();
+            long modified = lastModified(resource);
+            Builder builder = new Builder();
+            int[] skipped = {0};
+            CsvRows.read(resource, COLUMNS, row -> {
+                if (!builder.add(row)) skipped[0]++;
+            });
+            Columns loaded = builder.build();
+            columns = loaded;
+            loadedModified = modified;
+            reloads++;
+            logger.info("MemberSubscriptionStore loaded {} rows, {} members, {} plans in {} ms (~{} KB, {} rows skipped)",
+                    loaded.rows, loaded.members, loaded.plans.length, (System.nanoTime() - started) / 1_000_000,
+                    loaded.estimatedBytes() / 1024, skipped[0]);
+            return true;
+        } catch (Exception e) {
+            logger.error("❌ Failed to load member dataset from {}", datasetLocation, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reloads the dataset when its last-modified time has changed since the last load.
+     */
+    @Scheduled(fixedDelayString = "${knowledge.members.reload-check-ms:60000}",
+            initialDelayString = "${knowledge.members.reload-check-ms:60000}")
+    public void reloadIfChanged() {
+        if (!enabled) return;
+        Resource resource = resourceLoader.getResource(datasetLocation);
+        if (!resource.exists()) return;
+        long modified = lastModified(resource);
+        if (modified > 0 && modified != loadedModified) {
+            logger.info("🔄 Member dataset {} changed, reloading", datasetLocation);
+            reload();
+        }
+    }
+
+    /**
+     * All subscriptions of a member, in file order; empty if the member is unknown.
+     */
+    public List<Subscription> findByMemberId(String memberId) {
+        Columns c = columns;
+        List<Subscription> result = new ArrayList<>();
+        if (memberId == null || c.rows == 0) return result;
+        for (int row = c.firstRow(normalizeId(memberId)); row >= 0; row = c.nextRow[row]) {
+            result.add(c.subscription(row));
+        }
+        return result;
+    }
+
+    /**
+     * Subscriptions active on {@code date}, optionally restricted to one plan, most recently
+     * effective first.
+     *
+     * @param limit maximum number of rows returned; the total is always counted
+     */
+    public ActiveMembers findActiveOn(LocalDate date, String planId, int limit) {
+        Columns c = columns;
+        int day = (int) date.toEpochDay();
+        DateIndex index = c.allActive;
+        int segment = 0;
+        if (planId != null && !planId.isBlank()) {
+            segment = c.planIndex(planId.trim().toUpperCase(Locale.ROOT));
+            if (segment < 0) return new ActiveMembers(0, List.of());
+            index = c.activeByPlan;
+        }
+        int from = index.offsets[segment];
+        int effectiveTo = upperBound(index.effectiveDays, from, index.offsets[segment + 1], day);
+        int endedTo = lowerBound(index.endDays, from, index.offsets[segment + 1], day);
+        // Every row that started by `day` and has not ended before it; ended rows started earlier too
+        int total = effectiveTo - endedTo;
+        int wanted = Math.min(Math.max(0, limit), total);
+        List<Subscription> items = new ArrayList<>(wanted);
+        for (int i = effectiveTo - 1; i >= from && items.size() < wanted; i--) {
+            int row = index.rows[i];
+            if (c.endDays[row] >= day) items.add(c.subscription(row));
+        }
+        return new ActiveMembers(total, items);
+    }
+
+    /**
+     * Result of an active-on-date scan.
+     */
+    public record ActiveMembers(int total, List<Subscription> items) {
+    }
+
+    public Map<String, Object> getStats() {
+        Columns c = columns;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", c.rows);
+        result.put("members", c.members);
+        result.put("plans", c.plans.length);
+        result.put("estimatedBytes", c.estimatedBytes());
+        result.put("reloads", reloads);
+        return result;
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** First index in [from, to) whose value is greater than {@code key}. */
+    private static int upperBound(int[] sorted, int from, int to, int key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid] <= key) from = mid + 1; else to = mid;
+        }
+        return from;
+    }
+
+    /** First index in [from, to) whose value is not less than {@code key}. */
+    private static int lowerBound(int[] sorted, int from, int to, int key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid] < key) from = mid + 1; else to = mid;
+        }
+        return from;
+    }
+
+    private static String normalizeId(String memberId) {
+        return memberId.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Active rows of each segment (all rows, or one plan per segment), sorted by effective day;
+     * segment s is [offsets[s], offsets[s + 1]). endDays holds the same rows' end days, sorted on
+     * their own, so it is only good for counting.
+     */
+    private static final class DateIndex {
+        final int[] offsets;
+        final int[] rows;
+        final int[] effectiveDays;
+        final int[] endDays;
+
+        DateIndex(int[] offsets, int[] rows, int[] effectiveDays, int[] endDays) {
+            this.offsets = offsets;
+            this.rows = rows;
+            this.effectiveDays = effectiveDays;
+            this.endDays = endDays;
+        }
+
+        static DateIndex build(int[] candidates, int segments, int[] segmentOf, int[] effective, int[] end) {
+            Integer[] order = new Integer[candidates.length];
+            for (int i = 0; i < order.length; i++) order[i] = candidates[i];
+            Arrays.sort(order, Comparator.<Integer>comparingInt(row -> segmentOf[row])
+                    .thenComparingInt(row -> effective[row])
+                    .thenComparingInt(row -> row));
+            int[] offsets = new int[segments + 1];
+            int[] rows = new int[order.length];
+            int[] effectiveDays = new int[order.length];
+            int[] endDays = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                int row = order[i];
+                rows[i] = row;
+                effectiveDays[i] = effective[row];
+                endDays[i] = end[row];
+                offsets[segmentOf[row] + 1]++;
+            }
+            for (int s = 0; s < segments; s++) {
+                offsets[s + 1] += offsets[s];
+                Arrays.sort(endDays, offsets[s], offsets[s + 1]);
+            }
+            return new DateIndex(offsets, rows, effectiveDays, endDays);
+        }
+
+        long estimatedBytes() {
+            return 4L * (offsets.length + rows.length + effectiveDays.length + endDays.length);
+        }
+    }
+
+    /**
+     * Immutable column set; replaced as a whole on reload.
+     */
+    private static final class Columns {
+        final int rows;
+        final int members;
+        final byte[] text;          // memberId then memberName of every row, UTF-8
+        final int[] textOffsets;    // row r: id = [2r, 2r+1), name = [2r+1, 2r+2)
+        final short[] planCodes;    // index into plans
+        final String[] plans;
+        final int[] effectiveDays;
+        final int[] endDays;        // NO_END when open-ended
+        final BitSet active;
+        final int[] nextRow;        // next row of the same member, -1 at the end
+        final int[] slots;          // hash table: first row of a member + 1, 0 when empty
+        final DateIndex allActive;  // one segment
+        final DateIndex activeByPlan; // one segment per plan code
+
+        Columns(int rows, int members, byte[] text, int[] textOffsets, short[] planCodes, String[] plans,
+                int[] effectiveDays, int[] endDays, BitSet active, int[] nextRow, int[] slots) {
+            this.rows = rows;
+            this.members = members;
+            this.text = text;
+            this.textOffsets = textOffsets;
+            this.planCodes = planCodes;
+            this.plans = plans;
+            this.effectiveDays = effectiveDays;
+            this.endDays = endDays;
+            this.active = active;
+            this.nextRow = nextRow;
+            this.slots = slots;
+            // Rows ending before they start are never active and would break the counting
+            int[] candidates = active.stream().filter(row -> endDays[row] >= effectiveDays[row]).toArray();
+            int[] planOf = new int[rows];
+            for (int row = 0; row < rows; row++) planOf[row] = Short.toUnsignedInt(planCodes[row]);
+            this.allActive = DateIndex.build(candidates, 1, new int[rows], effectiveDays, endDays);
+            this.activeByPlan = DateIndex.build(candidates, plans.length, planOf, effectiveDays, endDays);
+        }
+
+        int firstRow(String memberId) {
+            byte[] key = memberId.getBytes(StandardCharsets.UTF_8);
+            int mask = slots.length - 1;
+            for (int i = hash(key, 0, key.length) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                int row = slots[i] - 1;
+                int from = textOffsets[2 * row];
+                int to = textOffsets[2 * row + 1];
+                if (Arrays.equals(text, from, to, key, 0, key.length)) return row;
+            }
+            return -1;
+        }
+
+        int planIndex(String planId) {
+            for (int i = 0; i < plans.length; i++) {
+                if (plans[i].equals(planId)) return i;
+            }
+            return -1;
+        }
+
+        Subscription subscription(int row) {
+            return new Subscription(
+                    string(2 * row),
+                    string(2 * row + 1),
+                    plans[Short.toUnsignedInt(planCodes[row])],
+                    LocalDate.ofEpochDay(effectiveDays[row]),
+                    endDays[row] == NO_END ? null : LocalDate.ofEpochDay(endDays[row]),
+                    active.get(row));
+        }
+
+        private String string(int field) {
+            int from = textOffsets[field];
+            return new String(text, from, textOffsets[field + 1] - from, StandardCharsets.UTF_8);
+        }
+
+        long estimatedBytes() {
+            return text.length + 4L * textOffsets.length + 2L * planCodes.length + 4L * effectiveDays.length
+                    + 4L * endDays.length + active.size() / 8 + 4L * nextRow.length + 4L * slots.length
+                    + allActive.estimatedBytes() + activeByPlan.estimatedBytes();
+        }
+    }
+
+    /**
+     * Accumulates rows into growable columns, then freezes them into {@link Columns}.
+     */
+    private static final class Builder {
+        private int rows;
+        private byte[] text = new byte[1 << 16];
+        private int textLength;
+        private int[] textOffsets = new int[2 * 1024 + 1];
+        private short[] planCodes = new short[1024];
+        private int[] effectiveDays = new int[1024];
+        private int[] endDays = new int[1024];
+        private final BitSet active = new BitSet();
+        private final Map<String, Integer> planDictionary = new HashMap<>();
+        private final List<String> plans = new ArrayList<>();
+
+        boolean add(String[] row) {
+            String memberId = normalizeId(row[0]);
+            if (memberId.isEmpty() || row[3].isEmpty()) return false;
+            int effective;
+            int end;
+            try {
+                effective = (int) LocalDate.parse(row[3]).toEpochDay();
+                end = row[4].isEmpty() ? NO_END : (int) LocalDate.parse(row[4]).toEpochDay();
+            } catch (RuntimeException e) {
+                return false;
+            }
+            String planId = row[2].toUpperCase(Locale.ROOT);
+            Integer plan = planDictionary.get(planId);
+            if (plan == null) {
+                if (plans.size() == 0x10000) throw new IllegalStateException("More than 65536 distinct plan IDs");
+                plan = plans.size();
+                planDictionary.put(planId, plan);
+                plans.add(planId);
+            }
+
+            ensureCapacity(rows + 1);
+            textOffsets[2 * rows] = textLength;
+            appendText(memberId);
+            textOffsets[2 * rows + 1] = textLength;
+            appendText(row[1]);
+            textOffsets[2 * rows + 2] = textLength;
+            planCodes[rows] = (short) plan.intValue();
+            effectiveDays[rows] = effective;
+            endDays[rows] = end;
+            if ("active".equalsIgnoreCase(row[5])) active.set(rows);
+            rows++;
+            return true;
+        }
+
+        Columns build() {
+            int[] nextRow = new int[rows];
+            int[] lastRow = new int[rows];
+            int capacity = Integer.highestOneBit(Math.max(16, rows * 2 - 1) << 1);
+            int[] slots = new int[capacity];
+            int mask = capacity - 1;
+            int members = 0;
+            for (int row = 0; row < rows; row++) {
+                nextRow[row] = -1;
+                int from = textOffsets[2 * row];
+                int to = textOffsets[2 * row + 1];
+                int i = hash(text, from, to) & mask;
+                while (true) {
+                    if (slots[i] == 0) {
+                        slots[i] = row + 1;
+                        lastRow[row] = row;
+                        members++;
+                        break;
+                    }
+                    int first = slots[i] - 1;
+                    if (Arrays.equals(text, textOffsets[2 * first], textOffsets[2 * first + 1], text, from, to)) {
+                        // Append to the member's chain; lastRow is tracked on the chain head
+                        nextRow[lastRow[first]] = row;
+                        lastRow[first] = row;
+                        break;
+                    }
+                    i = (i + 1) & mask;
+                }
+            }
+            return new Columns(rows, members,
+                    Arrays.copyOf(text, textLength), Arrays.copyOf(textOffsets, 2 * rows + 1),
+                    Arrays.copyOf(planCodes, rows), plans.toArray(new String[0]),
+                    Arrays.copyOf(effectiveDays, rows), Arrays.copyOf(endDays, rows),
+                    (BitSet) active.clone(), nextRow, slots);
+        }
+
+        private void appendText(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (textLength + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + bytes.length));
+            }
+            System.arraycopy(bytes, 0, text, textLength, bytes.length);
+            textLength += bytes.length;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= planCodes.length) return;
+            int capacity = Math.max(needed, planCodes.length * 2);
+            textOffsets = Arrays.copyOf(textOffsets, 2 * capacity + 1);
+            planCodes = Arrays.copyOf(planCodes, capacity);
+            effectiveDays = Arrays.copyOf(effectiveDays, capacity);
+            endDays = Arrays.copyOf(endDays, capacity);
+        }
+    }
+}
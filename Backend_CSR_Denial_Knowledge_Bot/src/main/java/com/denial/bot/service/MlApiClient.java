@@ -0,0 +1,419 @@
+package com.denial.bot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pooled, non-blocking HTTP client for the ML API.
+ *
+ * A single {@link HttpClient} is shared by all callers so connections are kept alive and reused
+ * (HTTP/2 when the ML host offers it). Every endpoint has its own timeout and the number of
+ * in-flight calls is capped; callers over the cap are rejected immediately instead of queueing.
+ *
+ * Calls other than the health check go through the {@link MlCircuitBreaker} and are hedged: if
+ * no answer has arrived after the endpoint's recent p95 latency, a duplicate request is sent and
+ * whichever succeeds first wins. The losing request is cancelled, which frees its in-flight permit.
+ *
+ * Every attempt is timed as {@code ml.api.requests}, tagged by endpoint and outcome.
+ */
+@Service
+public class MlApiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlApiClient.class);
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    /**
+     * ML API endpoints called by the backend.
+     */
+    public enum Endpoint {
+        QUERY("/query"),
+        HEALTH("/health"),
+        TRAIN_STATUS("/train-status"),
+        AVAILABLE_DATA("/available-data");
+
+        private final String path;
+
+        Endpoint(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+
+    @Value("${ml.api.base-url:http://localhost:5004}")
+    private String mlApiBaseUrl;
+
+    @Value("${ml.api.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${ml.api.timeout.query-ms:20000}")
+    private long queryTimeoutMs;
+
+    @Value("${ml.api.timeout.health-ms:3000}")
+    private long healthTimeoutMs;
+
+    @Value("${ml.api.timeout.train-status-ms:5000}")
+    private long trainStatusTimeoutMs;
+
+    @Value("${ml.api.timeout.available-data-ms:5000}")
+    private long availableDataTimeoutMs;
+
+    @Value("${ml.api.max-in-flight:64}")
+    private int maxInFlight;
+
+    @Value("${ml.api.io-threads:4}")
+    private int ioThreads;
+
+    @Value("${ml.api.http2:true}")
+    private boolean http2;
+
+    @Value("${ml.api.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${ml.api.hedge.initial-delay-ms:3000}")
+    private long hedgeInitialDelayMs;
+
+    @Value("${ml.api.hedge.min-delay-ms:200}")
+    private long hedgeMinDelayMs;
+
+    @Value("${ml.api.hedge.max-delay-ms:10000}")
+    private long hedgeMaxDelayMs;
+
+    @Value("${ml.api.hedge.min-samples:20}")
+    private int hedgeMinSamples;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MlCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+    private ExecutorService ioExecutor;
+    private Semaphore inFlight;
+    private int permits;
+
+    private final Map<Endpoint, LatencyWindow> latencies = new EnumMap<>(Endpoint.class);
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ioExecutor = Executors.newFixedThreadPool(Math.max(1, ioThreads), r -> {
+            Thread t = new Thread(r, "ml-client-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(ioExecutor)
+                .build();
+        permits = Math.max(1, maxInFlight);
+        inFlight = new Semaphore(permits);
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new LatencyWindow(256));
+        }
+        Gauge.builder("ml.api.in.flight", this, MlApiClient::getInFlight).register(meterRegistry);
+        FunctionCounter.builder("ml.api.hedges", hedgesSent, LongAdder::sum).tag("result", "sent").register(meterRegistry);
+        FunctionCounter.builder("ml.api.hedges", hedgeWins, LongAdder::sum).tag("result", "won").register(meterRegistry);
+        logger.info("MlApiClient initialized: baseUrl={}, maxInFlight={}, http2={}", mlApiBaseUrl, maxInFlight, http2);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                ioExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ioExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * POSTs a JSON body to the given endpoint.
+     */
+    public CompletableFuture<Map<String, Object>> post(Endpoint endpoint, Map<String, Object> body) {
+        try {
+            HttpRequest request = newRequest(endpoint)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            return send(endpoint, request);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * GETs the given endpoint.
+     */
+    public CompletableFuture<Map<String, Object>> get(Endpoint endpoint) {
+        return send(endpoint, newRequest(endpoint).GET().build());
+    }
+
+    /**
+     * Number of ML calls currently in flight.
+     */
+    public int getInFlight() {
+        return permits - inFlight.availablePermits();
+    }
+
+    public Map<String, Object> getHedgeStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", hedgeEnabled);
+        result.put("hedgesSent", hedgesSent.sum());
+        result.put("hedgeWins", hedgeWins.sum());
+        result.put("queryP95Ms", latencies.get(Endpoint.QUERY).p95());
+        result.put("queryHedgeDelayMs", hedgeDelay(Endpoint.QUERY));
+        return result;
+    }
+
+    public String getBaseUrl() {
+        return mlApiBaseUrl;
+    }
+
+    private HttpRequest.Builder newRequest(Endpoint endpoint) {
+        return HttpRequest.newBuilder(URI.create(mlApiBaseUrl + endpoint.getPath()))
+                .timeout(Duration.ofMillis(timeoutFor(endpoint)))
+                .header("Accept", "application/json");
+    }
+
+    private CompletableFuture<Map<String, Object>> send(Endpoint endpoint, HttpRequest request) {
+        // The health check is the breaker's half-open probe, so it is never gated or hedged
+        if (endpoint == Endpoint.HEALTH) {
+            return attempt(endpoint, request, false);
+        }
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new MlCircuitBreaker.CircuitOpenException());
+        }
+        CompletableFuture<Map<String, Object>> primary = attempt(endpoint, request, true);
+        return hedgeEnabled ? hedge(endpoint, request, primary) : primary;
+    }
+
+    /**
+     * Completes with the first successful attempt; a duplicate is sent if the primary has not
+     * answered within the hedge delay. Fails only once every attempt sent has failed.
+     */
+    private CompletableFuture<Map<String, Object>> hedge(Endpoint endpoint, HttpRequest request,
+                                                         CompletableFuture<Map<String, Object>> primary) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<Map<String, Object>>> hedged = new AtomicReference<>();
+        primary.whenComplete((body, ex) -> settle(result, pending, body, ex, false));
+        // Once there is an answer (or the caller gave up) the other attempt is only holding a permit
+        result.whenComplete((body, ex) -> {
+            primary.cancel(true);
+            CompletableFuture<Map<String, Object>> duplicate = hedged.get();
+            if (duplicate != null) duplicate.cancel(true);
+        });
+
+        long delay = hedgeDelay(endpoint);
+        CompletableFuture.runAsync(() -> {
+            // Only hedge a healthy API with spare capacity; never push a struggling one harder
+            if (result.isDone() || circuitBreaker.getState() != MlCircuitBreaker.State.CLOSED
+                    || inFlight.availablePermits() == 0) {
+                return;
+            }
+            pending.incrementAndGet();
+            hedgesSent.increment();
+            logger.debug("ML API {} slower than {} ms, sending hedged request", endpoint, delay);
+            CompletableFuture<Map<String, Object>> duplicate = attempt(endpoint, request, true);
+            hedged.set(duplicate);
+            duplicate.whenComplete((body, ex) -> settle(result, pending, body, ex, true));
+            if (result.isDone()) duplicate.cancel(true);
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, ioExecutor));
+        return result;
+    }
+
+    private void settle(CompletableFuture<Map<String, Object>> result, AtomicInteger pending,
+                        Map<String, Object> body, Throwable ex, boolean hedged) {
+        if (ex == null) {
+            if (result.complete(body) && hedged) hedgeWins.increment();
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> attempt(Endpoint endpoint, HttpRequest request, boolean guarded) {
+        if (!inFlight.tryAcquire()) {
+            logger.warn("⚠️ ML API in-flight limit ({}) reached, rejecting {} call", permits, endpoint);
+            meterRegistry.counter("ml.api.rejected", "endpoint", endpoint.name().toLowerCase()).increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("ML API is busy (" + permits + " calls in flight)"));
+        }
+        long started = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> call;
+        try {
+            call = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            inFlight.release();
+            requestTimer(endpoint, "error").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return CompletableFuture.failedFuture(e);
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<Map<String, Object>> result = call.whenComplete((response, ex) -> {
+                    inFlight.release();
+                    long elapsed = System.nanoTime() - started;
+                    // A cancelled hedge loser says nothing about the API's health
+                    if (cancelled.get() || isCancellation(ex)) {
+                        requestTimer(endpoint, "cancelled").record(elapsed, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    requestTimer(endpoint, outcome(response, ex)).record(elapsed, TimeUnit.NANOSECONDS);
+                    // 4xx means the API is up and answering; only transport errors and 5xx count against it
+                    boolean failed = ex != null || response.statusCode() >= 500;
+                    if (!failed) latencies.get(endpoint).add(elapsed / 1_000_000);
+                    if (guarded) {
+                        if (failed) circuitBreaker.onFailure();
+                        else circuitBreaker.onSuccess();
+                    }
+                })
+                .thenApply(response -> {
+                    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                        throw new MlApiException(response.statusCode());
+                    }
+                    try {
+                        return objectMapper.readValue(response.body(), MAP_TYPE);
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Unreadable ML API response: " + e.getMessage(), e);
+                    }
+                });
+        // Cancelling the attempt aborts the HTTP exchange (the JDK client also propagates a
+        // dependent's cancel upstream on its own); its permit is released above
+        result.whenComplete((body, ex) -> {
+            if (isCancellation(ex) && cancelled.compareAndSet(false, true)) call.cancel(true);
+        });
+        return result;
+    }
+
+    private Timer requestTimer(Endpoint endpoint, String outcome) {
+        return Timer.builder("ml.api.requests")
+                .description("ML API call latency per attempt (hedges are separate attempts)")
+                .tag("endpoint", endpoint.name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String outcome(HttpResponse<?> response, Throwable ex) {
+        if (ex != null) {
+            return ex instanceof HttpTimeoutException || ex.getCause() instanceof HttpTimeoutException ? "timeout" : "error";
+        }
+        int status = response.statusCode();
+        if (status >= 500) return "server_error";
+        if (status >= 400) return "client_error";
+        return "success";
+    }
+
+    private static boolean isCancellation(Throwable ex) {
+        return ex instanceof CancellationException
+                || ex instanceof CompletionException && ex.getCause() instanceof CancellationException;
+    }
+
+    private long hedgeDelay(Endpoint endpoint) {
+        LatencyWindow window = latencies.get(endpoint);
+        if (window.size() < hedgeMinSamples) return hedgeInitialDelayMs;
+        return Math.max(hedgeMinDelayMs, Math.min(hedgeMaxDelayMs, window.p95()));
+    }
+
+    private long timeoutFor(Endpoint endpoint) {
+        return switch (endpoint) {
+            case QUERY -> queryTimeoutMs;
+            case HEALTH -> healthTimeoutMs;
+            case TRAIN_STATUS -> trainStatusTimeoutMs;
+            case AVAILABLE_DATA -> availableDataTimeoutMs;
+        };
+    }
+
+    /**
+     * Ring of the most recent successful call latencies of one endpoint.
+     */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            samples = new long[capacity];
+        }
+
+        synchronized void add(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (size < samples.length) size++;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long p95() {
+            if (size == 0) return 0;
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(size * 0.95) - 1];
+        }
+    }
+
+    /**
+     * Raised when the ML API answers with a non-2xx status.
+     */
+    public static class MlApiException extends RuntimeException {
+
+        private final int statusCode;
+
+        public MlApiException(int statusCode) {
+            super("ML API returned error: " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.denial.bot.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker in front of the ML API.
+ *
+ * CLOSED: calls pass and their outcomes fill a sliding window of the last N calls. Once the
+ * window holds enough calls and the failure rate reaches the threshold the breaker OPENs and
+ * calls fail immediately. After the open period it goes HALF_OPEN and runs a single
+ * {@link SmartQueryService#checkMLApiHealthAsync()} probe: healthy closes the breaker, anything
+ * else opens it again.
+ */
+@Service
+public class MlCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MlCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${ml.api.circuit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ml.api.circuit.window-size:20}")
+    private int windowSize;
+
+    @Value("${ml.api.circuit.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ml.api.circuit.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${ml.api.circuit.open-ms:15000}")
+    private long openMs;
+
+    // Health probe for the half-open state; lazy because SmartQueryService depends on the ML client
+    @Lazy
+    @Autowired
+    private SmartQueryService smartQueryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openUntil;
+    private LongSupplier clock = System::currentTimeMillis;
+    private volatile long lastTransitionAt;
+
+    // Sliding window of outcomes (true = failure), guarded by this
+    private boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * Thrown instead of calling the ML API while the breaker is not closed.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException() {
+            super("ML API circuit is open");
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        window = new boolean[Math.max(1, windowSize)];
+        lastTransitionAt = clock.getAsLong();
+        // 0 = closed, 1 = open, 2 = half-open
+        Gauge.builder("ml.api.circuit.state", state, s -> s.get().ordinal()).register(meterRegistry);
+        FunctionCounter.builder("ml.api.circuit.rejected", rejected, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("ml.api.circuit.opened", opened, LongAdder::sum).register(meterRegistry);
+        logger.info("MlCircuitBreaker initialized: enabled={}, window={}, minimumCalls={}, threshold={}%, openMs={}",
+                enabled, window.length, minimumCalls, failureRateThreshold, openMs);
+    }
+
+    /**
+     * Whether a call may go out now. Also starts the half-open probe once the open period is over.
+     */
+    public boolean allowRequest() {
+        if (!enabled) return true;
+        State current = state.get();
+        if (current == State.CLOSED) return true;
+        if (current == State.OPEN && clock.getAsLong() >= openUntil) {
+            startProbe();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Starts the half-open probe if the open period elapsed while no calls were coming in.
+     */
+    @Scheduled(fixedDelayString = "${ml.api.circuit.probe-check-ms:1000}")
+    public void probeIfDue() {
+        if (enabled && state.get() == State.OPEN && clock.getAsLong() >= openUntil) {
+            startProbe();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("state", state.get().name());
+        synchronized (this) {
+            result.put("windowCalls", windowCount);
+            result.put("failureRate", windowCount == 0 ? 0 : windowFailures * 100 / windowCount);
+        }
+        result.put("opened", opened.sum());
+        result.put("rejected", rejected.sum());
+        result.put("lastTransitionAt", lastTransitionAt);
+        return result;
+    }
+
+    private void record(boolean failure) {
+        if (!enabled || state.get() != State.CLOSED) return;
+        boolean trip;
+        synchronized (this) {
+            if (windowCount == window.length) {
+                if (window[windowPos]) windowFailures--;
+            } else {
+                windowCount++;
+            }
+            window[windowPos] = failure;
+            if (failure) windowFailures++;
+            windowPos = (windowPos + 1) % window.length;
+            trip = windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount;
+        }
+        if (trip && transition(State.CLOSED, State.OPEN)) {
+            logger.warn("🔌 ML API circuit opened: failure rate reached {}% over the last {} calls", failureRateThreshold, windowCount);
+        }
+    }
+
+    private void startProbe() {
+        if (!transition(State.OPEN, State.HALF_OPEN)) return;
+        logger.info("🔌 ML API circuit half-open, probing health");
+        smartQueryService.checkMLApiHealthAsync().whenComplete((healthy, ex) -> {
+            if (ex == null && Boolean.TRUE.equals(healthy)) {
+                if (transition(State.HALF_OPEN, State.CLOSED)) logger.info("🔌 ML API circuit closed, health probe succeeded");
+            } else if (transition(State.HALF_OPEN, State.OPEN)) {
+                logger.warn("🔌 ML API circuit re-opened, health probe failed");
+            }
+        });
+    }
+
+    private boolean transition(State from, State to) {
+        long now = clock.getAsLong();
+        // Set the deadline first so nobody sees OPEN with a stale one
+        if (to == State.OPEN) openUntil = now + openMs;
+        if (!state.compareAndSet(from, to)) return false;
+        lastTransitionAt = now;
+        if (to == State.OPEN) opened.increment();
+        if (to == State.CLOSED) {
+            synchronized (this) {
+                windowPos = 0;
+                windowCount = 0;
+                windowFailures = 0;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.denial.bot.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical concurrent ML queries.
+ *
+ * The first caller for a (query, type) key starts the ML request; callers arriving while it is
+ * still in flight attach to the same future instead of sending their own. Every caller receives
+ * its own deep copy of the result.
+ */
+@Service
+public class QueryCoalescer {
+
+    @Value("${query.coalescing.enabled:true}")
+    private boolean enabled;
+
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Runs {@code loader} unless an identical query is already in flight, in which case the
+     * caller shares that request's result.
+     */
+    public CompletableFuture<Map<String, Object>> execute(String query, String queryType,
+                                                          Supplier<CompletableFuture<Map<String, Object>>> loader) {
+        if (!enabled) return loader.get();
+
+        String key = QueryResponseCache.key(query, queryType);
+        CompletableFuture<Map<String, Object>> shared = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            collapsed.increment();
+            return existing.thenApply(ResponseMaps::deepCopy);
+        }
+
+        leaders.increment();
+        CompletableFuture<Map<String, Object>> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException e) {
+            source = CompletableFuture.failedFuture(e);
+        }
+        source.whenComplete((result, ex) -> {
+            // Unregister before completing so later arrivals start a fresh call (or hit the cache)
+            inFlight.remove(key, shared);
+            if (ex != null) shared.completeExceptionally(ex);
+            else shared.complete(result);
+        });
+        return shared.thenApply(ResponseMaps::deepCopy);
+    }
+
+    /**
+     * Counters for monitoring how many ML calls were saved.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("leaders", leaders.sum());
+        result.put("collapsed", collapsed.sum());
+        result.put("inFlight", inFlight.size());
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package com.denial.bot.service;
+
+import java.util.Map;
+
+/**
+ * Answers a query locally when the ML API could not.
+ *
+ * Every bean implementing this interface is tried in {@code @Order} order after an ML API
+ * failure; the first non-null answer is returned to the client.
+ */
+public interface QueryFallback {
+
+    /**
+     * A response in the ML API's shape, or null if this fallback has nothing relevant.
+     */
+    Map<String, Object> answer(String query);
+}
@@ -0,0 +1,128 @@
+package com.denial.bot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, TTL-based cache of successful ML query responses.
+ *
+ * Keys are the normalized query text plus the query type. Eviction is Caffeine's W-TinyLFU, so
+ * frequently asked denial questions stay resident. The whole cache is dropped as soon as the ML
+ * API's {@code /health} reports a different {@code model_version} (a digest of the embedding model
+ * name and the dataset CSVs it loaded at startup); otherwise entries age out after the TTL.
+ */
+@Service
+public class QueryResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResponseCache.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Value("${query.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${query.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${query.cache.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Autowired
+    @Lazy
+    private SmartQueryService smartQueryService;
+
+    private Cache<String, Map<String, Object>> cache;
+
+    private volatile String modelFingerprint;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        logger.info("QueryResponseCache initialized: enabled={}, maxSize={}, ttlSeconds={}", enabled, maxSize, ttlSeconds);
+    }
+
+    /**
+     * Returns a private copy of the cached response, or null on a miss.
+     */
+    public Map<String, Object> get(String query, String queryType) {
+        if (!enabled) return null;
+        Map<String, Object> hit = cache.getIfPresent(key(query, queryType));
+        return hit == null ? null : ResponseMaps.deepCopy(hit);
+    }
+
+    /**
+     * Caches a successful response; error responses are never cached.
+     */
+    public void put(String query, String queryType, Map<String, Object> response) {
+        if (!enabled || response == null) return;
+        if (!Boolean.TRUE.equals(response.get("success"))) return;
+        cache.put(key(query, queryType), ResponseMaps.deepCopy(response));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Polls the ML API health and drops every entry once a new model or dataset version is live.
+     */
+    @Scheduled(fixedDelayString = "${query.cache.version-check-ms:60000}", initialDelayString = "${query.cache.version-check-ms:60000}")
+    public void checkModelVersion() {
+        if (!enabled) return;
+        smartQueryService.getHealthStatusAsync().thenAccept(this::onHealthStatus);
+    }
+
+    void onHealthStatus(Map<String, Object> health) {
+        if (health == null) return;
+        Object version = health.get("model_version");
+        if (version == null) return;
+        String fingerprint = version.toString();
+        String previous = modelFingerprint;
+        modelFingerprint = fingerprint;
+        if (previous != null && !previous.equals(fingerprint)) {
+            long size = cache.estimatedSize();
+            cache.invalidateAll();
+            logger.info("🔄 ML model/dataset changed ({} -> {}), dropped {} cached responses", previous, fingerprint, size);
+        }
+    }
+
+    /**
+     * Hit/miss statistics for monitoring.
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    static String key(String query, String queryType) {
+        String normalized = query == null ? "" : WHITESPACE.matcher(query.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        String type = queryType == null ? "" : queryType.trim().toLowerCase(Locale.ROOT);
+        return type + '\u0000' + normalized;
+    }
+}
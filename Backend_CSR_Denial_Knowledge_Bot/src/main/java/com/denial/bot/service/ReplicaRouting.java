@@ -0,0 +1,128 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read/write routing decisions for {@link com.denial.bot.config.ReadReplicaConfig}: connections of
+ * read-only transactions come from the replica unless the current user wrote within the last
+ * {@code persistence.replica.sticky-ms}, so they read their own writes from the primary.
+ *
+ * Read-write transactions mark the authenticated user automatically; writes made
+ * elsewhere (the conversation write-behind queue) call {@link #markWrite(Long)} themselves.
+ * Decisions are counted as {@code datasource.routing} (target, reason).
+ */
+@Service
+public class ReplicaRouting {
+
+    @Value("${persistence.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${persistence.replica.sticky-ms:5000}")
+    private long stickyMs;
+
+    @Value("${persistence.replica.max-sticky-users:100000}")
+    private long maxStickyUsers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<Long, Boolean> recentWriters;
+    private Counter replicaReads;
+    private Counter stickyReads;
+    private Counter primaryWrites;
+
+    @PostConstruct
+    public void init() {
+        recentWriters = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxStickyUsers))
+                .expireAfterWrite(Duration.ofMillis(Math.max(0, stickyMs)))
+                .build();
+        replicaReads = routingCounter("replica", "read_only");
+        stickyReads = routingCounter("primary", "sticky");
+        primaryWrites = routingCounter("primary", "read_write");
+    }
+
+    public boolean isEnabled() {
+        return replicaUrl != null && !replicaUrl.isBlank();
+    }
+
+    /**
+     * Whether a read-only connection may come from the replica: no, if the user is still sticky.
+     */
+    public boolean useReplica() {
+        return useReplica(currentUserId());
+    }
+
+    /**
+     * Same decision for an explicit user, for reads that run outside the request's security context.
+     */
+    public boolean useReplica(Long userId) {
+        if (userId != null && recentWriters.getIfPresent(userId) != null) {
+            stickyReads.increment();
+            return false;
+        }
+        replicaReads.increment();
+        return true;
+    }
+
+    /**
+     * Called for every primary (read-write) connection; makes the user sticky if it serves a transaction.
+     */
+    public void onPrimaryConnection() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            markWrite(currentUserId());
+        }
+        primaryWrites.increment();
+    }
+
+    /**
+     * Pins the user's reads to the primary for the stickiness window.
+     */
+    public void markWrite(Long userId) {
+        if (userId == null || !isEnabled()) return;
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", isEnabled());
+        if (!isEnabled()) return result;
+        result.put("stickyMs", stickyMs);
+        result.put("stickyUsers", recentWriters.estimatedSize());
+        result.put("replicaReads", (long) replicaReads.count());
+        result.put("stickyReads", (long) stickyReads.count());
+        result.put("primaryConnections", (long) primaryWrites.count());
+        return result;
+    }
+
+    private Counter routingCounter(String target, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out by the read/write routing data source")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.denial.bot.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for the JSON-shaped {@code Map<String, Object>} responses relayed from the ML API.
+ */
+public final class ResponseMaps {
+
+    private ResponseMaps() {
+    }
+
+    /**
+     * Deep-copies a parsed JSON response so callers sharing a cached or in-flight result
+     * can never see each other's mutations.
+     */
+    public static Map<String, Object> deepCopy(Map<String, Object> source) {
+        if (source == null) return null;
+        Map<String, Object> copy = new LinkedHashMap<>(Math.max(4, source.size() * 2));
+        for (Map.Entry<String, Object> e : source.entrySet()) {
+            copy.put(e.getKey(), copyValue(e.getValue()));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return deepCopy((Map<String, Object>) map);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(copyValue(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,61 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.ChatSession;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Explicit eviction and per-region statistics for the Hibernate second-level cache
+ * ({@link com.denial.bot.config.SecondLevelCacheConfig}). Writes that bypass Hibernate (JDBC)
+ * must evict what they changed here; everything is a no-op while the cache is disabled.
+ */
+@Service
+public class SecondLevelCache {
+
+    @Value("${persistence.l2-cache.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void evictChatSession(Long sessionId) {
+        entityManagerFactory.getCache().evict(ChatSession.class, sessionId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        if (!enabled) return result;
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region == null) continue;
+            long requests = region.getHitCount() + region.getMissCount();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("hits", region.getHitCount());
+            stats.put("misses", region.getMissCount());
+            stats.put("puts", region.getPutCount());
+            stats.put("hitRate", requests == 0 ? 0.0 : (double) region.getHitCount() / requests);
+            regions.put(name, stats);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+}
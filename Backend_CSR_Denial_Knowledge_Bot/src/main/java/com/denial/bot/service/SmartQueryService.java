@@ -1,20 +1,20 @@
 package com.denial.bot.service;
 
-import com.denial.bot.entity.Conversation;
 import com.denial.bot.entity.User;
-import com.denial.bot.repository.ConversationRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for handling smart query processing and ML API communication.
@@ -24,23 +24,29 @@ public class SmartQueryService {
 
     private static final Logger logger = LoggerFactory.getLogger(SmartQueryService.class);
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private MlApiClient mlApiClient;
 
-    @Value("${ml.api.base-url:http://localhost:5004}")
-    private String mlApiBaseUrl;
+    @Autowired
+    private QueryResponseCache queryResponseCache;
 
     @Autowired
-    private ConversationRepository conversationRepository;
+    private QueryCoalescer queryCoalescer;
 
     @Autowired
-    private AuthService authService;
+    private ConversationWriter conversationWriter;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private DenialCodeIndex denialCodeIndex;
 
-    public SmartQueryService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private List<QueryFallback> queryFallbacks;
+
+    @Value("${ml.api.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+
+    @Value("${query.batch.parallelism:8}")
+    private int batchParallelism;
 
     /**
      * Sends a query to the ML API and returns the response.
@@ -50,63 +56,158 @@ public class SmartQueryService {
      * @return Response from the ML API.
      */
     public Map<String, Object> processQuery(String query, String queryType) {
-        try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("query", query);
-            if (queryType != null) {
-                requestBody.put("type", queryType);
+        return processQueryAsync(query, queryType).join();
+    }
+
+    /**
+     * Non-blocking variant of {@link #processQuery(String, String)}; the returned future never
+     * completes exceptionally, failures are mapped to the standard error response.
+     * Denial code lookups are answered from {@link DenialCodeIndex} without calling the ML API.
+     */
+    public CompletableFuture<Map<String, Object>> processQueryAsync(String query, String queryType) {
+        Map<String, Object> local = answerLocally(query, queryType);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
+        }
+        return queryCoalescer.execute(query, queryType, () -> queryMlApi(query, queryType));
+    }
+
+    /**
+     * Runs {@link #processQueryAsync} for every query with at most {@code query.batch.parallelism}
+     * in flight at once. Results are in input order; like the single variant, the future never
+     * completes exceptionally.
+     */
+    public CompletableFuture<List<Map<String, Object>>> processQueriesAsync(List<String> queries, String queryType) {
+        BatchRun run = new BatchRun(queries, queryType);
+        if (queries.isEmpty()) {
+            run.done.complete(List.of());
+            return run.done;
+        }
+        for (int i = 0; i < Math.min(Math.max(1, batchParallelism), queries.size()); i++) {
+            pump(run);
+        }
+        return run.done;
+    }
+
+    /**
+     * Starts queries of the batch until one has to wait on the ML API; its completion resumes
+     * the pump. Local answers complete inline, so this loops instead of recursing.
+     */
+    private void pump(BatchRun run) {
+        while (true) {
+            int index = run.next.getAndIncrement();
+            if (index >= run.queries.size()) return;
+            CompletableFuture<Map<String, Object>> future = processQueryAsync(run.queries.get(index), run.queryType);
+            if (!future.isDone()) {
+                future.whenComplete((response, ex) -> {
+                    run.finish(index, response, ex);
+                    pump(run);
+                });
+                return;
             }
+            future.whenComplete((response, ex) -> run.finish(index, response, ex));
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+    private final class BatchRun {
+        final List<String> queries;
+        final String queryType;
+        final Map<String, Object>[] results;
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger remaining;
+        final CompletableFuture<List<Map<String, Object>>> done = new CompletableFuture<>();
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    mlApiBaseUrl + "/query",
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+        @SuppressWarnings("unchecked")
+        BatchRun(List<String> queries, String queryType) {
+            this.queries = queries;
+            this.queryType = queryType;
+            this.results = new Map[queries.size()];
+            this.remaining = new AtomicInteger(queries.size());
+        }
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                logger.info("✅ ML API responded successfully for query: {}", query);
-                return response.getBody();
-            } else {
-                logger.warn("⚠️ ML API returned non-2xx status: {}", response.getStatusCode());
-                return createErrorResponse("ML API returned error: " + response.getStatusCode());
+        void finish(int index, Map<String, Object> response, Throwable ex) {
+            results[index] = ex == null ? response : createErrorResponse("Failed to process query: " + describe(unwrap(ex)));
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(Arrays.asList(results));
             }
+        }
+    }
 
-        } catch (Exception e) {
-            logger.error("❌ Failed to connect to ML API", e);
-            return createErrorResponse("Failed to connect to ML API: " + e.getMessage());
+    /**
+     * The answer available without calling the ML API (denial index or response cache), or null.
+     */
+    public Map<String, Object> answerLocally(String query, String queryType) {
+        Map<String, Object> local = denialCodeIndex.lookup(query);
+        if (local != null) {
+            logger.info("⚡ Answered locally from denial index: {}", query);
+            return local;
+        }
+
+        Map<String, Object> cached = queryResponseCache.get(query, queryType);
+        if (cached != null) {
+            logger.info("⚡ Cache hit for query: {}", query);
+            return cached;
         }
+        return null;
+    }
+
+    private CompletableFuture<Map<String, Object>> queryMlApi(String query, String queryType) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("query", query);
+        if (queryType != null) {
+            requestBody.put("type", queryType);
+        }
+
+        return mlApiClient.post(MlApiClient.Endpoint.QUERY, requestBody)
+                .thenApply(body -> {
+                    if (!Boolean.TRUE.equals(body.get("success"))) {
+                        // e.g. the ML service is still warming up after a cold start
+                        logger.warn("⚠️ ML API could not answer query: {}", query);
+                        return fallbackOr(query, body);
+                    }
+                    logger.info("✅ ML API responded successfully for query: {}", query);
+                    queryResponseCache.put(query, queryType, body);
+                    return body;
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof MlApiClient.MlApiException || cause instanceof MlCircuitBreaker.CircuitOpenException) {
+                        logger.warn("⚠️ {}", describe(cause));
+                        return fallbackOr(query, createErrorResponse(describe(cause)));
+                    }
+                    logger.error("❌ Failed to connect to ML API", cause);
+                    return fallbackOr(query, createErrorResponse("Failed to connect to ML API: " + describe(cause)));
+                });
     }
 
     /**
-     * Saves a conversation to the database.
+     * Answers from the first {@link QueryFallback} that has something when the ML API could not,
+     * otherwise returns {@code failure} unchanged. Fallback answers are never cached.
+     */
+    private Map<String, Object> fallbackOr(String query, Map<String, Object> failure) {
+        if (!fallbackEnabled) return failure;
+        for (QueryFallback queryFallback : queryFallbacks) {
+            Map<String, Object> fallback = queryFallback.answer(query);
+            if (fallback != null) {
+                logger.info("🛟 Answered from local fallback: {}", query);
+                return fallback;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Queues a conversation for write-behind persistence.
      *
-     * @param token     JWT token of the user.
+     * @param user      The authenticated user.
      * @param userInput The original user query.
      * @param response  The AI-generated response.
      */
-    public void saveConversation(String token, String userInput, Map<String, Object> response) {
+    public void saveConversation(User user, String userInput, Map<String, Object> response) {
         try {
-            String username = authService.getUsernameFromToken(token);
-            Optional<User> userOpt = authService.getUserByUsername(username);
-
-            if (userOpt.isPresent()) {
-                Map<String, Object> innerResponse = (Map<String, Object>) response.get("response");
-                String outputType = innerResponse.get("type").toString();
-                String aiOutput = objectMapper.writeValueAsString(response);
-
-                Conversation convo = new Conversation();
-                convo.setUser(userOpt.get());
-                convo.setUserInput(userInput);
-                convo.setAiOutput(aiOutput);
-                convo.setOutputType(outputType);
-
-                conversationRepository.save(convo);
-                logger.info("💾 Conversation saved for user: {}", username);
+            if (user != null) {
+                conversationWriter.enqueue(user.getId(), userInput, response);
+                logger.info("💾 Conversation queued for user: {}", user.getUsername());
             } else {
                 logger.warn("⚠️ User not found while saving conversation");
             }
@@ -121,58 +222,67 @@ public class SmartQueryService {
      * @return true if healthy, false otherwise.
      */
     public boolean checkMLApiHealth() {
-        try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(
-                    mlApiBaseUrl + "/health",
-                    Map.class
-            );
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            logger.error("❌ ML API health check failed", e);
-            return false;
-        }
+        return checkMLApiHealthAsync().join();
+    }
+
+    public CompletableFuture<Boolean> checkMLApiHealthAsync() {
+        return mlApiClient.get(MlApiClient.Endpoint.HEALTH)
+                .thenApply(body -> true)
+                .exceptionally(ex -> {
+                    logger.error("❌ ML API health check failed: {}", describe(unwrap(ex)));
+                    return false;
+                });
+    }
+
+    /**
+     * Raw ML API health body (status, model_version); null when the ML API is unreachable.
+     */
+    public CompletableFuture<Map<String, Object>> getHealthStatusAsync() {
+        return mlApiClient.get(MlApiClient.Endpoint.HEALTH)
+                .exceptionally(ex -> {
+                    logger.warn("⚠️ ML API health status unavailable: {}", describe(unwrap(ex)));
+                    return null;
+                });
     }
 
     /**
      * Retrieves the current training status from the ML API.
      */
     public Map<String, Object> getTrainStatus() {
-        try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(
-                    mlApiBaseUrl + "/train-status",
-                    Map.class
-            );
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return response.getBody();
-            } else {
-                logger.warn("⚠️ Failed to get training status: {}", response.getStatusCode());
-                return createErrorResponse("Failed to get training status");
-            }
-        } catch (Exception e) {
-            logger.error("❌ Error fetching training status", e);
-            return createErrorResponse("Failed to connect to ML API: " + e.getMessage());
-        }
+        return getTrainStatusAsync().join();
+    }
+
+    public CompletableFuture<Map<String, Object>> getTrainStatusAsync() {
+        return mlApiClient.get(MlApiClient.Endpoint.TRAIN_STATUS)
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof MlApiClient.MlApiException) {
+                        logger.warn("⚠️ Failed to get training status: {}", describe(cause));
+                        return createErrorResponse("Failed to get training status");
+                    }
+                    logger.error("❌ Error fetching training status", cause);
+                    return createErrorResponse("Failed to connect to ML API: " + describe(cause));
+                });
     }
 
     /**
      * Retrieves available training data from the ML API.
      */
     public Map<String, Object> getAvailableData() {
-        try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(
-                    mlApiBaseUrl + "/available-data",
-                    Map.class
-            );
-            if (response.getStatusCode().is2xxSuccessful()) {
-                return response.getBody();
-            } else {
-                logger.warn("⚠️ Failed to get available data: {}", response.getStatusCode());
-                return createErrorResponse("Failed to get available data");
-            }
-        } catch (Exception e) {
-            logger.error("❌ Error fetching available data", e);
-            return createErrorResponse("Failed to connect to ML API: " + e.getMessage());
-        }
+        return getAvailableDataAsync().join();
+    }
+
+    public CompletableFuture<Map<String, Object>> getAvailableDataAsync() {
+        return mlApiClient.get(MlApiClient.Endpoint.AVAILABLE_DATA)
+                .exceptionally(ex -> {
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof MlApiClient.MlApiException) {
+                        logger.warn("⚠️ Failed to get available data: {}", describe(cause));
+                        return createErrorResponse("Failed to get available data");
+                    }
+                    logger.error("❌ Error fetching available data", cause);
+                    return createErrorResponse("Failed to connect to ML API: " + describe(cause));
+                });
     }
 
     /**
@@ -184,4 +294,19 @@ public class SmartQueryService {
         errorResponse.put("error", errorMessage);
         return errorResponse;
     }
+
+    /**
+     * The exception's message, or its class name when it has none (e.g. a bare connect failure).
+     */
+    private static String describe(Throwable ex) {
+        String message = ex.getMessage();
+        return message == null || message.isBlank() ? ex.getClass().getSimpleName() : message;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
 }
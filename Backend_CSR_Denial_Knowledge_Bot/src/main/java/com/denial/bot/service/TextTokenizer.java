@@ -0,0 +1,49 @@
+package com.denial.bot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tokenizer shared by the local text indexes: lower-cased runs of letters and digits, common
+ * English stop words removed and common suffixes trimmed, so "services" matches "service" and
+ * "covered" matches "cover".
+ */
+final class TextTokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how", "i",
+            "if", "in", "is", "it", "me", "my", "of", "on", "or", "the", "this", "to", "was", "what", "when",
+            "where", "which", "why", "with", "you", "your");
+
+    private TextTokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                String token = current.toString();
+                current.setLength(0);
+                if (!STOP_WORDS.contains(token)) tokens.add(stem(token));
+            }
+        }
+        return tokens;
+    }
+
+    private static String stem(String token) {
+        int length = token.length();
+        if (length > 5 && token.endsWith("ing")) return token.substring(0, length - 3);
+        if (length > 4 && token.endsWith("ied")) return token.substring(0, length - 3) + "y";
+        if (length > 4 && token.endsWith("ies")) return token.substring(0, length - 3) + "y";
+        if (length > 4 && token.endsWith("ed")) return token.substring(0, length - 2);
+        if (length > 4 && token.endsWith("es") && !token.endsWith("ses")) return token.substring(0, length - 1);
+        if (length > 3 && token.endsWith("s") && !token.endsWith("ss")) return token.substring(0, length - 1);
+        return token;
+    }
+}
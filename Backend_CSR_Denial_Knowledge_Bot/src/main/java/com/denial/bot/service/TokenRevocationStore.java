@@ -0,0 +1,345 @@
+package com.denial.bot.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Compact, self-expiring store of revoked tokens.
+ *
+ * Tokens are identified by a 64-bit hash, kept in a primitive open-addressing table together with
+ * their expiry. A hashed timer wheel sweeps entries out within one tick of expiring, so the store
+ * only ever holds tokens that could still be presented. A Bloom filter sits in front: the common
+ * "not revoked" answer is a handful of bit probes with no locking and no allocation.
+ *
+ * Writers (revoke, sweep) serialize on the monitor; {@link #isRevoked} never locks. The table is
+ * a single atomic array of (key, expiry) pairs swapped as a whole on rehash, and a slot's expiry
+ * is written before its key, so a reader that finds the key sees its expiry.
+ */
+@Service
+public class TokenRevocationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationStore.class);
+
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+    private static final int BLOOM_HASHES = 4;
+
+    @Value("${app.auth.revocation.initial-capacity:1024}")
+    private int initialCapacity;
+
+    @Value("${app.auth.revocation.bloom-bits:1048576}")
+    private int bloomBits;
+
+    @Value("${app.auth.revocation.tick-ms:60000}")
+    private long tickMs;
+
+    @Value("${app.auth.revocation.wheel-slots:256}")
+    private int wheelSlots;
+
+    // Open-addressing table of (key, expiry) pairs; key EMPTY means free, TOMBSTONE means deleted
+    private volatile AtomicLongArray table;
+    private int size;
+    private int tombstones;
+
+    // Timer wheel: each slot holds the keys whose expiry tick maps to it
+    private long[][] wheel;
+    private int[] wheelCounts;
+    private long nextTickToSweep;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private volatile AtomicLongArray bloom;
+    private int bloomMask;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder bloomFalsePositives = new LongAdder();
+    private final LongAdder revokedHits = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1);
+        table = new AtomicLongArray(capacity * 2);
+        int bits = Integer.highestOneBit(Math.max(1024, bloomBits - 1) << 1);
+        bloom = new AtomicLongArray(bits >>> 6);
+        bloomMask = bits - 1;
+        wheel = new long[Math.max(8, wheelSlots)][];
+        wheelCounts = new int[wheel.length];
+        nextTickToSweep = clock.getAsLong() / tickMs;
+        logger.info("TokenRevocationStore initialized: bloomBits={}, tickMs={}, wheelSlots={}", bits, tickMs, wheel.length);
+    }
+
+    /**
+     * Marks a token hash as revoked until {@code expiresAtMillis}.
+     */
+    public synchronized void revoke(long tokenHash, long expiresAtMillis) {
+        long key = normalize(tokenHash);
+        if (expiresAtMillis <= clock.getAsLong()) return;
+        // Bloom bits first: a reader that finds the entry must not be turned away by the filter
+        addToBloom(bloom, key);
+        if (put(key, expiresAtMillis)) {
+            schedule(key, expiresAtMillis);
+        }
+    }
+
+    /**
+     * True if the token hash is revoked and not yet expired.
+     */
+    public boolean isRevoked(long tokenHash) {
+        long started = System.nanoTime();
+        lookups.increment();
+        try {
+            long key = normalize(tokenHash);
+            if (!mightContain(bloom, key)) {
+                bloomNegatives.increment();
+                return false;
+            }
+            long expiry = get(key);
+            if (expiry == EMPTY || expiry <= clock.getAsLong()) {
+                bloomFalsePositives.increment();
+                return false;
+            }
+            revokedHits.increment();
+            return true;
+        } finally {
+            lookupNanos.add(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Advances the timer wheel over every tick completed since the last sweep, dropping the
+     * entries that expired in them, and rebuilds the Bloom filter when anything was removed.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation.tick-ms:60000}")
+    public synchronized void sweep() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMs;
+        int removed = 0;
+        // Only whole ticks: every entry of a completed tick has expired. At most one full turn
+        long from = Math.max(nextTickToSweep, currentTick - wheel.length);
+        for (long tick = from; tick < currentTick; tick++) {
+            int slot = (int) (tick % wheel.length);
+            long[] bucket = wheel[slot];
+            int count = wheelCounts[slot];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                long key = bucket[i];
+                long expiry = get(key);
+                if (expiry == EMPTY) continue;
+                if (expiry <= now) {
+                    if (remove(key)) removed++;
+                } else if (slotOf(expiry) == slot) {
+                    // Later round of the wheel; keep it in place
+                    bucket[kept++] = key;
+                }
+                // else: expiry was extended and the key rescheduled in another slot
+            }
+            wheelCounts[slot] = kept;
+        }
+        nextTickToSweep = Math.max(nextTickToSweep, currentTick);
+        if (removed > 0) {
+            swept.add(removed);
+            rebuildBloom();
+            if (tombstones > capacity() / 4) rehash(capacity());
+            logger.debug("Revocation sweep removed {} expired tokens, {} remain", removed, size);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Memory and lookup-cost figures for monitoring.
+     */
+    public synchronized Map<String, Object> getStats() {
+        long totalLookups = lookups.sum();
+        long wheelBytes = 0;
+        for (long[] bucket : wheel) {
+            if (bucket != null) wheelBytes += (long) bucket.length * Long.BYTES;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", size);
+        result.put("tableCapacity", capacity());
+        result.put("bloomBits", (long) bloom.length() * Long.SIZE);
+        result.put("estimatedBytes", (long) table.length() * Long.BYTES + (long) bloom.length() * Long.BYTES + wheelBytes);
+        result.put("lookups", totalLookups);
+        result.put("bloomNegatives", bloomNegatives.sum());
+        result.put("bloomFalsePositives", bloomFalsePositives.sum());
+        result.put("revokedHits", revokedHits.sum());
+        result.put("avgLookupNanos", totalLookups == 0 ? 0 : lookupNanos.sum() / totalLookups);
+        result.put("expiredSwept", swept.sum());
+        return result;
+    }
+
+    // ---- open-addressing table (writers hold the monitor; get() is lock-free) ----
+
+    /**
+     * Inserts the key or extends its expiry; returns whether it needs (re)scheduling on the wheel.
+     */
+    private boolean put(long key, long expiry) {
+        if ((size + tombstones + 1) * 2 > capacity()) {
+            rehash(size * 2 + 2 > capacity() / 2 ? capacity() * 2 : capacity());
+        }
+        AtomicLongArray t = table;
+        int mask = capacity() - 1;
+        int firstFree = -1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = t.get(i * 2);
+            if (k == key) {
+                long current = t.get(i * 2 + 1);
+                if (expiry <= current) return false;
+                t.set(i * 2 + 1, expiry);
+                // Same slot, later round: the existing wheel entry still covers it
+                return slotOf(expiry) != slotOf(current);
+            }
+            if (k == TOMBSTONE && firstFree < 0) firstFree = i;
+            if (k == EMPTY) {
+                int target = firstFree >= 0 ? firstFree : i;
+                if (t.get(target * 2) == TOMBSTONE) tombstones--;
+                t.set(target * 2 + 1, expiry);
+                t.set(target * 2, key);
+                size++;
+                return true;
+            }
+        }
+    }
+
+    private long get(long key) {
+        retry:
+        while (true) {
+            AtomicLongArray t = table;
+            int mask = (t.length() >>> 1) - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                long k = t.get(i * 2);
+                if (k == key) {
+                    long expiry = t.get(i * 2 + 1);
+                    // The slot may have been freed and reused between the two reads; look again
+                    if (t.get(i * 2) != key) continue retry;
+                    return expiry;
+                }
+                if (k == EMPTY) return EMPTY;
+            }
+        }
+    }
+
+    private boolean remove(long key) {
+        AtomicLongArray t = table;
+        int mask = capacity() - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = t.get(i * 2);
+            if (k == key) {
+                t.set(i * 2, TOMBSTONE);
+                t.set(i * 2 + 1, 0);
+                size--;
+                tombstones++;
+                return true;
+            }
+            if (k == EMPTY) return false;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        AtomicLongArray old = table;
+        AtomicLongArray fresh = new AtomicLongArray(newCapacity * 2);
+        int mask = newCapacity - 1;
+        int entries = 0;
+        for (int j = 0; j < old.length(); j += 2) {
+            long key = old.get(j);
+            if (key == EMPTY || key == TOMBSTONE) continue;
+            int i = mix(key) & mask;
+            while (fresh.get(i * 2) != EMPTY) i = (i + 1) & mask;
+            fresh.set(i * 2 + 1, old.get(j + 1));
+            fresh.set(i * 2, key);
+            entries++;
+        }
+        size = entries;
+        tombstones = 0;
+        table = fresh;
+    }
+
+    private int capacity() {
+        return table.length() >>> 1;
+    }
+
+    // ---- timer wheel ----
+
+    private void schedule(long key, long expiry) {
+        int slot = slotOf(expiry);
+        long[] bucket = wheel[slot];
+        int count = wheelCounts[slot];
+        if (bucket == null) {
+            bucket = wheel[slot] = new long[4];
+        } else if (count == bucket.length) {
+            bucket = wheel[slot] = Arrays.copyOf(bucket, count * 2);
+        }
+        bucket[count] = key;
+        wheelCounts[slot] = count + 1;
+    }
+
+    private int slotOf(long expiry) {
+        return (int) ((expiry / tickMs) % wheel.length);
+    }
+
+    // ---- Bloom filter ----
+
+    private void rebuildBloom() {
+        AtomicLongArray fresh = new AtomicLongArray(bloom.length());
+        AtomicLongArray t = table;
+        for (int i = 0; i < t.length(); i += 2) {
+            long key = t.get(i);
+            if (key != EMPTY && key != TOMBSTONE) addToBloom(fresh, key);
+        }
+        bloom = fresh;
+    }
+
+    private void addToBloom(AtomicLongArray bits, long key) {
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray bits, long key) {
+        int h1 = (int) key;
+        int h2 = (int) (key >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // ---- hashing ----
+
+    private static long normalize(long hash) {
+        // EMPTY and TOMBSTONE are reserved markers
+        return hash == EMPTY || hash == TOMBSTONE ? 1L : hash;
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
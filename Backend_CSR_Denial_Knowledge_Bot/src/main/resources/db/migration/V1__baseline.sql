@@ -0,0 +1,80 @@
+-- Schema as created by Hibernate ddl-auto=update before migrations were introduced.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+create table chat_messages (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    session_id bigint not null,
+    role varchar(20) not null,
+    content_type varchar(50) not null,
+    content TEXT not null,
+    metadata TEXT,
+    primary key (id)
+) engine=InnoDB;
+
+create table chat_sessions (
+    session_date date not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    updated_at datetime(6) not null,
+    user_id bigint not null,
+    title varchar(200) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table conversations (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    user_id bigint not null,
+    ai_output TEXT not null,
+    output_type varchar(255) not null,
+    user_input TEXT not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table users (
+    active bit not null,
+    id bigint not null auto_increment,
+    role varchar(50) not null,
+    username varchar(100) not null,
+    email varchar(150) not null,
+    password varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_chat_messages_session_created
+   on chat_messages (session_id, created_at);
+
+create index idx_chat_sessions_user_date
+   on chat_sessions (user_id, session_date);
+
+alter table chat_sessions
+   add constraint uk_chat_sessions_user_date unique (user_id, session_date);
+
+create index idx_users_username
+   on users (username);
+
+create index idx_users_email
+   on users (email);
+
+alter table users
+   add constraint UK_r43af9ap4edm43mmtq01oddj6 unique (username);
+
+alter table users
+   add constraint UK_6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table chat_messages
+   add constraint FK3cpkdtwdxndrjhrx3gt9q5ux9
+   foreign key (session_id)
+   references chat_sessions (id);
+
+alter table chat_sessions
+   add constraint FK82ky97glaomlmhjqae1d0esmy
+   foreign key (user_id)
+   references users (id);
+
+alter table conversations
+   add constraint FKpltqvfcbkql9svdqwh0hw4g1d
+   foreign key (user_id)
+   references users (id);
@@ -0,0 +1,8 @@
+-- History listing: WHERE user_id = ? [AND output_type = ?] ORDER BY created_at DESC, id DESC
+-- (InnoDB secondary indexes carry the primary key, so id is covered for the keyset tie-break)
+
+create index idx_conversations_user_created
+   on conversations (user_id, created_at);
+
+create index idx_conversations_user_type_created
+   on conversations (user_id, output_type, created_at);
@@ -0,0 +1,17 @@
+-- Content-addressed bodies (ContentStore): large or repeated metadata and AI outputs are stored
+-- once, deflated, and referenced from the row by their SHA-256 hash.
+
+create table content_blobs (
+    codec smallint not null,
+    raw_length integer not null,
+    created_at datetime(6) not null,
+    hash varbinary(32) not null,
+    data LONGBLOB not null,
+    primary key (hash)
+) engine=InnoDB;
+
+alter table chat_messages
+   add column metadata_ref varbinary(32);
+
+alter table conversations
+   add column ai_output_ref varbinary(32);
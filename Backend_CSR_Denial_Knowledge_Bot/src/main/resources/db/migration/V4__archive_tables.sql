@@ -0,0 +1,39 @@
+-- Cold tier for conversations and chat messages (HistoryArchiver). Rows keep their ids when moved;
+-- large bodies are kept in content_blobs and referenced by hash, so these tables stay narrow.
+-- No foreign keys: archived rows are never updated and must not slow down writes to the hot tables.
+
+create table conversations_archive (
+    created_at datetime(6) not null,
+    id bigint not null,
+    updated_at datetime(6),
+    user_id bigint not null,
+    ai_output_ref varbinary(32),
+    ai_output TEXT not null,
+    output_type varchar(255) not null,
+    user_input TEXT not null,
+    archived_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_conversations_archive_user_created
+   on conversations_archive (user_id, created_at);
+
+create index idx_conversations_archive_user_type_created
+   on conversations_archive (user_id, output_type, created_at);
+
+create table chat_messages_archive (
+    created_at datetime(6) not null,
+    id bigint not null,
+    session_id bigint not null,
+    role varchar(20) not null,
+    content_ref varbinary(32),
+    metadata_ref varbinary(32),
+    content_type varchar(50) not null,
+    content TEXT not null,
+    metadata TEXT,
+    archived_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_chat_messages_archive_session_created
+   on chat_messages_archive (session_id, created_at);
@@ -0,0 +1,8 @@
+-- Archival walk: WHERE created_at < ? AND (created_at, id) > (?, ?) ORDER BY created_at, id
+-- (InnoDB secondary indexes carry the primary key, so id is covered for the keyset tie-break)
+
+create index idx_conversations_created
+   on conversations (created_at);
+
+create index idx_chat_messages_created
+   on chat_messages (created_at);
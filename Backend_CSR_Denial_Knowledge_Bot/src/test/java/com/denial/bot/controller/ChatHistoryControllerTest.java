@@ -0,0 +1,153 @@
+package com.denial.bot.controller;
+
+import com.denial.bot.entity.User;
+import com.denial.bot.model.ChatSessionListVersion;
+import com.denial.bot.repository.ChatSessionRepository;
+import com.denial.bot.service.ChatMessageService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatHistoryControllerTest {
+
+    private static final long SESSION = 10L;
+
+    private ChatSessionRepository chatSessionRepository;
+    private ChatMessageService chatMessageService;
+    private ChatHistoryController controller;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        chatSessionRepository = mock(ChatSessionRepository.class);
+        chatMessageService = mock(ChatMessageService.class);
+        controller = new ChatHistoryController();
+        ReflectionTestUtils.setField(controller, "chatSessionRepository", chatSessionRepository);
+        ReflectionTestUtils.setField(controller, "chatMessageService", chatMessageService);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(controller, "bulkMaxSize", 2);
+        alice = new User();
+        alice.setId(1L);
+        // The service's answer when no owned session matched
+        when(chatMessageService.appendAll(any(), any(), anyList())).thenReturn(null);
+    }
+
+    @Test
+    void appendToAMissingSessionIs404() {
+        when(chatSessionRepository.existsById(SESSION)).thenReturn(false);
+
+        assertEquals(404, controller.appendMessage(SESSION, alice, message("hello")).getStatusCode().value());
+        assertEquals(404, controller.appendMessages(SESSION, alice, Map.of("messages", List.of(message("hello"))))
+                .getStatusCode().value());
+    }
+
+    @Test
+    void appendToSomeoneElsesSessionIs403() {
+        when(chatSessionRepository.existsById(SESSION)).thenReturn(true);
+
+        assertEquals(403, controller.appendMessage(SESSION, alice, message("hello")).getStatusCode().value());
+        assertEquals(403, controller.appendMessages(SESSION, alice, Map.of("messages", List.of(message("hello"))))
+                .getStatusCode().value());
+    }
+
+    @Test
+    void successfulAppendSkipsTheOwnershipLookup() {
+        when(chatMessageService.append(eq(SESSION), eq(1L), any()))
+                .thenReturn(new ChatMessageService.SavedMessage(7L, LocalDateTime.now()));
+
+        assertEquals(200, controller.appendMessage(SESSION, alice, message("hello")).getStatusCode().value());
+        verify(chatSessionRepository, never()).existsById(any());
+    }
+
+    @Test
+    void invalidOrOversizedBulkIs400WithoutTouchingTheSession() {
+        assertEquals(400, controller.appendMessages(SESSION, alice, Map.of("messages", List.of(Map.of("role", "user"))))
+                .getStatusCode().value());
+        assertEquals(400, controller.appendMessages(SESSION, alice,
+                Map.of("messages", List.of(message("a"), message("b"), message("c")))).getStatusCode().value());
+        verify(chatMessageService, never()).appendAll(any(), any(), anyList());
+    }
+
+    @Test
+    void anonymousAppendIs401() {
+        assertEquals(401, controller.appendMessage(SESSION, null, message("hello")).getStatusCode().value());
+    }
+
+    @Test
+    void unchangedSessionListIs304() {
+        when(chatSessionRepository.findListVersion(1L))
+                .thenReturn(new ChatSessionListVersion(2L, LocalDateTime.of(2024, 1, 1, 9, 0)));
+        when(chatSessionRepository.findSummariesByUserId(1L)).thenReturn(List.of());
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        ResponseEntity<?> listed = controller.listSessions(alice, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), first));
+        assertEquals(200, listed.getStatusCode().value());
+        assertEquals("no-cache, private", listed.getHeaders().getCacheControl());
+        String etag = first.getHeader("ETag");
+        assertNotNull(etag);
+
+        MockHttpServletRequest revalidate = new MockHttpServletRequest("GET", "/");
+        revalidate.addHeader("If-None-Match", etag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertNull(controller.listSessions(alice, new ServletWebRequest(revalidate, second)));
+        assertEquals(304, second.getStatus());
+        verify(chatSessionRepository, times(1)).findSummariesByUserId(1L);
+    }
+
+    @Test
+    void changedSessionListIsServedAgain() {
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 1, 9, 0);
+        when(chatSessionRepository.findListVersion(1L)).thenReturn(new ChatSessionListVersion(2L, updatedAt));
+        when(chatSessionRepository.findSummariesByUserId(1L)).thenReturn(List.of());
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        controller.listSessions(alice, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), first));
+        String etag = first.getHeader("ETag");
+
+        // A deleted session leaves the newest timestamp alone but changes the count
+        when(chatSessionRepository.findListVersion(1L)).thenReturn(new ChatSessionListVersion(1L, updatedAt));
+        MockHttpServletRequest revalidate = new MockHttpServletRequest("GET", "/");
+        revalidate.addHeader("If-None-Match", etag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        ResponseEntity<?> listed = controller.listSessions(alice, new ServletWebRequest(revalidate, second));
+
+        assertEquals(200, listed.getStatusCode().value());
+        assertEquals(200, second.getStatus());
+        verify(chatSessionRepository, times(2)).findSummariesByUserId(1L);
+    }
+
+    @Test
+    void emptySessionListStillCarriesAnEtag() {
+        when(chatSessionRepository.findListVersion(1L)).thenReturn(new ChatSessionListVersion(0L, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<?> listed = controller.listSessions(alice, new ServletWebRequest(new MockHttpServletRequest("GET", "/"), response));
+
+        assertEquals(200, listed.getStatusCode().value());
+        assertEquals("\"1-0-0\"", response.getHeader("ETag"));
+    }
+
+    private static Map<String, Object> message(String content) {
+        return Map.of("role", "user", "content", content);
+    }
+}
@@ -0,0 +1,125 @@
+package com.denial.bot.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop load generator for measuring a running instance.
+ *
+ * Each of {@code concurrency} clients sends its next request as soon as the previous one
+ * completes, so throughput only grows with concurrency while the server has threads to spare.
+ * Run it at a concurrency above {@code server.tomcat.threads.max} to see where request
+ * handling saturates:
+ *
+ * <pre>
+ * java src/test/java/com/denial/bot/loadtest/LoadTestRunner.java \
+ *     url=http://localhost:8080/api/smart/history token=&lt;jwt&gt; concurrency=1000 requests=20000
+ * </pre>
+ *
+ * Arguments (key=value): url, token, concurrency (default 200), requests (default 10000),
+ * method (GET or POST, default GET), body (JSON for POST), timeout-ms (default 30000).
+ * A {@code {n}} in the body is replaced by the request's sequence number, so that
+ * {@code /api/smart/query} load reaches the ML service instead of the response cache:
+ *
+ * <pre>
+ * java src/test/java/com/denial/bot/loadtest/LoadTestRunner.java \
+ *     url=http://localhost:8080/api/smart/query method=POST token=&lt;jwt&gt; \
+ *     body='{"query":"load test question {n}"}' concurrency=400 requests=8000
+ * </pre>
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) opts.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        String url = opts.getOrDefault("url", "http://localhost:8080/api/smart/health");
+        String token = opts.get("token");
+        int concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "200"));
+        int total = Integer.parseInt(opts.getOrDefault("requests", "10000"));
+        String method = opts.getOrDefault("method", "GET").toUpperCase();
+        String body = opts.getOrDefault("body", "{}");
+        Duration timeout = Duration.ofMillis(Long.parseLong(opts.getOrDefault("timeout-ms", "30000")));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest.Builder template = HttpRequest.newBuilder(URI.create(url)).timeout(timeout);
+        if (token != null) template.header("Authorization", "Bearer " + token);
+        if ("POST".equals(method)) {
+            template.header("Content-Type", "application/json");
+        } else {
+            template.GET();
+        }
+        IntFunction<HttpRequest> requests = n -> "POST".equals(method)
+                ? template.copy().POST(HttpRequest.BodyPublishers.ofString(body.replace("{n}", Integer.toString(n)))).build()
+                : template.build();
+
+        long[] latencies = new long[total];
+        AtomicInteger issued = new AtomicInteger();
+        AtomicInteger recorded = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        System.out.printf("%s %s concurrency=%d requests=%d%n", method, url, concurrency, total);
+        long started = System.nanoTime();
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            clients[i] = loop(client, requests, issued, total, latencies, recorded, errors, statuses);
+        }
+        CompletableFuture.allOf(clients).join();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        int n = recorded.get();
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        System.out.printf("completed=%d errors=%d elapsed=%.2fs throughput=%.1f req/s%n", n, errors.sum(), seconds, n / seconds);
+        if (n > 0) {
+            System.out.printf("latency ms: p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[n - 1] / 1e6);
+        }
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        System.out.println("status codes: " + byStatus);
+    }
+
+    // One simulated client: send, wait for the response, repeat until the request budget is spent
+    private static CompletableFuture<Void> loop(HttpClient client, IntFunction<HttpRequest> requests, AtomicInteger issued, int total,
+                                                long[] latencies, AtomicInteger recorded, LongAdder errors,
+                                                Map<Integer, LongAdder> statuses) {
+        int n = issued.getAndIncrement();
+        if (n >= total) return CompletableFuture.completedFuture(null);
+        long sent = System.nanoTime();
+        return client.sendAsync(requests.apply(n), HttpResponse.BodyHandlers.discarding())
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        errors.increment();
+                    } else {
+                        latencies[recorded.getAndIncrement()] = System.nanoTime() - sent;
+                        statuses.computeIfAbsent(response.statusCode(), k -> new LongAdder()).increment();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, requests, issued, total, latencies, recorded, errors, statuses));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,136 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.ChatMessage;
+import com.denial.bot.repository.ChatMessageRepository;
+import com.denial.bot.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ChatMessageServiceTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+    private static final long ALICE_SESSION = 10L;
+    private static final Timestamp CREATED = Timestamp.valueOf("2024-01-01 00:00:00");
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate tx;
+    private ChatMessageRepository chatMessageRepository;
+    private ChatSearchIndex chatSearchIndex;
+    private SecondLevelCache secondLevelCache;
+    private ChatMessageService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table chat_sessions (id bigint primary key, user_id bigint not null, updated_at datetime(6))");
+        jdbc.execute("create table chat_messages (id bigint auto_increment primary key, session_id bigint not null, " +
+                "role varchar(20) not null, content text not null, content_type varchar(50) not null, metadata text, " +
+                "metadata_ref varbinary(32), created_at datetime(6) not null)");
+        jdbc.update("insert into chat_sessions values (?, ?, ?)", ALICE_SESSION, ALICE, CREATED);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        chatMessageRepository = mock(ChatMessageRepository.class);
+        chatSearchIndex = mock(ChatSearchIndex.class);
+        secondLevelCache = mock(SecondLevelCache.class);
+        service = new ChatMessageService();
+        ReflectionTestUtils.setField(service, "chatSessionRepository", mock(ChatSessionRepository.class));
+        ReflectionTestUtils.setField(service, "chatMessageRepository", chatMessageRepository);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(service, "contentStore", mock(ContentStore.class));
+        ReflectionTestUtils.setField(service, "chatSearchIndex", chatSearchIndex);
+        ReflectionTestUtils.setField(service, "secondLevelCache", secondLevelCache);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void appendAllWritesInOrderAndTouchesTheSession() {
+        List<ChatMessageService.SavedMessage> saved = tx.execute(status -> service.appendAll(ALICE_SESSION, ALICE, List.of(
+                message("user", "what is co-45"),
+                message("bot", "charges exceed the fee schedule"))));
+
+        assertEquals(2, saved.size());
+        assertTrue(saved.get(0).id() < saved.get(1).id());
+        assertEquals(List.of("user", "bot"), jdbc.queryForList("select role from chat_messages order by id", String.class));
+        assertTrue(jdbc.queryForObject("select updated_at from chat_sessions where id = ?", Timestamp.class, ALICE_SESSION)
+                .after(CREATED));
+        verify(secondLevelCache).evictChatSession(ALICE_SESSION);
+        verify(chatSearchIndex).addMessage(eq(ALICE), eq(saved.get(0).id()), eq("what is co-45"), anyLong());
+    }
+
+    @Test
+    void appendAllToSomeoneElsesSessionWritesNothing() {
+        List<ChatMessageService.SavedMessage> saved = tx.execute(status ->
+                service.appendAll(ALICE_SESSION, BOB, List.of(message("user", "not mine"))));
+
+        assertNull(saved);
+        assertEquals(0, messages());
+        assertEquals(CREATED, jdbc.queryForObject("select updated_at from chat_sessions where id = ?", Timestamp.class, ALICE_SESSION));
+        verifyNoInteractions(secondLevelCache, chatSearchIndex);
+    }
+
+    @Test
+    void appendToAMissingSessionReturnsNull() {
+        ChatMessageService.SavedMessage saved = tx.execute(status -> service.append(99L, ALICE, message("user", "hello")));
+
+        assertNull(saved);
+        verify(chatMessageRepository, never()).save(any());
+    }
+
+    @Test
+    void appendSavesOneMessageAndIndexesItAfterCommit() {
+        LocalDateTime createdAt = LocalDateTime.now();
+        when(chatMessageRepository.save(any())).thenReturn(ChatMessage.builder().id(7L).createdAt(createdAt).build());
+
+        ChatMessageService.SavedMessage saved = tx.execute(status -> service.append(ALICE_SESSION, ALICE, message("user", "hello")));
+
+        assertEquals(new ChatMessageService.SavedMessage(7L, createdAt), saved);
+        verify(secondLevelCache).evictChatSession(ALICE_SESSION);
+        verify(chatSearchIndex).addMessage(eq(ALICE), eq(7L), eq("hello"), anyLong());
+    }
+
+    @Test
+    void rolledBackAppendIsNeitherIndexedNorEvicted() {
+        tx.execute(status -> {
+            service.appendAll(ALICE_SESSION, ALICE, List.of(message("user", "rolled back")));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(0, messages());
+        verifyNoInteractions(secondLevelCache, chatSearchIndex);
+    }
+
+    private int messages() {
+        return jdbc.queryForObject("select count(*) from chat_messages", Integer.class);
+    }
+
+    private static ChatMessageService.NewMessage message(String role, String content) {
+        return new ChatMessageService.NewMessage(role, content, "text", null);
+    }
+}
@@ -0,0 +1,221 @@
+package com.denial.bot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatSearchIndexTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+    private static final byte[] ARCHIVED_REF = {1, 2, 3};
+
+    private JdbcTemplate jdbc;
+    private ContentStore contentStore;
+    private ChatSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table chat_sessions (id bigint primary key, user_id bigint not null)");
+        jdbc.execute("create table chat_messages (id bigint primary key, session_id bigint not null, role varchar(20) not null, " +
+                "content text not null, content_type varchar(50) not null, created_at datetime(6) not null)");
+        jdbc.execute("create table chat_messages_archive (id bigint primary key, session_id bigint not null, role varchar(20) not null, " +
+                "content text not null, content_ref varbinary(32), content_type varchar(50) not null, created_at datetime(6) not null)");
+        jdbc.execute("create table conversations (id bigint primary key, user_id bigint not null, user_input text not null, " +
+                "output_type varchar(255) not null, created_at datetime(6) not null)");
+        jdbc.execute("create table conversations_archive (id bigint primary key, user_id bigint not null, user_input text not null, " +
+                "output_type varchar(255) not null, created_at datetime(6) not null)");
+        jdbc.update("insert into chat_sessions values (10, ?), (20, ?)", ALICE, BOB);
+
+        contentStore = mock(ContentStore.class);
+        when(contentStore.resolve(any(), any())).thenAnswer(call ->
+                call.getArgument(1) != null ? "archived appeal for CO-45 timely filing" : call.getArgument(0));
+
+        index = newIndex(268_435_456L);
+    }
+
+    private ChatSearchIndex newIndex(long maxBytes) {
+        ChatSearchIndex searchIndex = new ChatSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "enabled", true);
+        ReflectionTestUtils.setField(searchIndex, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(searchIndex, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(searchIndex, "contentStore", contentStore);
+        searchIndex.init();
+        return searchIndex;
+    }
+
+    @Test
+    void termsJoinDenialCodesWrittenApart() {
+        assertEquals(List.of("co97", "deny"), ChatSearchIndex.terms("CO-97 denied"));
+        assertEquals(List.of("co97"), ChatSearchIndex.terms("what is co 97"));
+        assertEquals(List.of("co97"), ChatSearchIndex.terms("co97"));
+        assertEquals(List.of("pr1", "co45"), ChatSearchIndex.terms("PR 1 / CO-45"));
+        assertEquals(List.of("claim", "1234"), ChatSearchIndex.terms("claim 1234"));
+        assertEquals(List.of("abc", "12"), ChatSearchIndex.terms("abc 12"));
+        assertEquals(List.of("co"), ChatSearchIndex.terms("co"));
+        assertEquals(List.of(), ChatSearchIndex.terms(null));
+    }
+
+    @Test
+    void ranksByBm25ThenNewestFirst() {
+        message(1, 10, "CO-97 bundling denial", 1_000);
+        message(2, 10, "CO-97 again: CO-97 bundled with another CO-97 service", 2_000);
+        message(3, 10, "eligibility question", 3_000);
+        conversation(4, ALICE, "CO-97 bundling", 4_000);
+        conversation(5, ALICE, "CO-97 bundling", 5_000);
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "co 97", 0, 10);
+
+        assertEquals(4, page.total());
+        List<Map<String, Object>> items = page.items();
+        assertEquals(List.of(2L, 5L, 4L, 1L), items.stream().map(item -> item.get("id")).toList());
+        assertEquals(items.get(1).get("score"), items.get(2).get("score"));
+        assertTrue((float) items.get(0).get("score") > (float) items.get(1).get("score"));
+        assertEquals("conversation", items.get(1).get("kind"));
+    }
+
+    @Test
+    void codeSearchDoesNotMatchOtherCodesSharingAPart() {
+        message(1, 10, "CO-45 fee schedule appeal", 1_000);
+        message(2, 10, "PR-97 bundled service", 2_000);
+        message(3, 10, "co 97 bundling question", 3_000);
+        conversation(4, ALICE, "what is co97", 4_000);
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "co-97", 0, 10);
+
+        assertEquals(List.of(4L, 3L), page.items().stream().map(item -> item.get("id")).toList());
+    }
+
+    @Test
+    void pagesOverTheRankedMatches() {
+        for (int i = 1; i <= 5; i++) {
+            message(i, 10, "timely filing", i * 1_000L);
+        }
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "timely", 3, 10);
+
+        assertEquals(5, page.total());
+        assertEquals(List.of(2L, 1L), page.items().stream().map(item -> item.get("id")).toList());
+    }
+
+    @Test
+    void searchesHotAndArchiveTiersOfTheUserOnly() {
+        message(1, 10, "hot CO-45 appeal", 1_000);
+        jdbc.update("insert into chat_messages_archive values (2, 10, 'user', '', ?, 'text', ?)", ARCHIVED_REF, new Timestamp(2_000));
+        conversation(3, ALICE, "CO-45 hot conversation", 3_000);
+        jdbc.update("insert into conversations_archive values (4, ?, 'archived CO-45 conversation', 'text', ?)", ALICE, new Timestamp(4_000));
+        message(5, 20, "bob's CO-45 appeal", 5_000);
+        conversation(6, BOB, "bob's CO-45 conversation", 6_000);
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "CO-45", 0, 10);
+
+        assertEquals(4, page.total());
+        Map<Object, Map<String, Object>> byId = page.items().stream()
+                .collect(Collectors.toMap(item -> item.get("id"), item -> item));
+        assertEquals(Set.of(1L, 2L, 3L, 4L), byId.keySet());
+        assertEquals("archived appeal for CO-45 timely filing", byId.get(2L).get("text"));
+        assertEquals(10L, byId.get(2L).get("sessionId"));
+        assertEquals("archived CO-45 conversation", byId.get(4L).get("text"));
+    }
+
+    @Test
+    void rowsAddedAfterTheBuildAreSearchable() {
+        message(1, 10, "first appeal", 1_000);
+        assertEquals(1, index.search(ALICE, "appeal", 0, 10).total());
+
+        message(2, 10, "second appeal", 2_000);
+        index.addMessage(ALICE, 2, "second appeal", 2_000);
+        conversation(3, ALICE, "third appeal", 3_000);
+        index.addConversation(ALICE, 3, "third appeal", 3_000);
+        index.addMessage(ALICE, 2, "second appeal", 2_000);
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "appeal", 0, 10);
+        assertEquals(3, page.total());
+        assertEquals(List.of(3L, 2L, 1L), page.items().stream().map(item -> item.get("id")).toList());
+    }
+
+    @Test
+    void rowsAddedDuringABuildAreReplayed() throws Exception {
+        message(1, 10, "first appeal", 1_000);
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(contentStore.resolve(any(), any())).thenAnswer(call -> {
+            building.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return call.getArgument(0);
+        });
+
+        CompletableFuture<ChatSearchIndex.SearchPage> first =
+                CompletableFuture.supplyAsync(() -> index.search(ALICE, "appeal", 0, 10));
+        assertTrue(building.await(5, TimeUnit.SECONDS));
+        // Committed after the build read the table
+        message(2, 10, "late appeal", 2_000);
+        index.addMessage(ALICE, 2, "late appeal", 2_000);
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        ChatSearchIndex.SearchPage page = index.search(ALICE, "late", 0, 10);
+        assertEquals(1, page.total());
+        assertEquals(2L, page.items().get(0).get("id"));
+        assertEquals(2, index.search(ALICE, "appeal", 0, 10).total());
+    }
+
+    @Test
+    void addsBeforeTheFirstSearchAreLeftToTheBuild() {
+        index.addMessage(ALICE, 1, "never written", 1_000);
+        message(2, 10, "written appeal", 2_000);
+
+        assertEquals(0, index.search(ALICE, "never", 0, 10).total());
+        assertEquals(1, index.search(ALICE, "appeal", 0, 10).total());
+    }
+
+    @Test
+    void indexesThatOutgrowTheBoundAreEvicted() {
+        ChatSearchIndex small = newIndex(64 * 1024);
+        message(1, 10, "appeal", 1_000);
+        message(2, 20, "appeal", 1_000);
+        small.search(ALICE, "appeal", 0, 10);
+        small.search(BOB, "appeal", 0, 10);
+        Cache<?, ?> cache = (Cache<?, ?>) ReflectionTestUtils.getField(small, "indexes");
+        cache.cleanUp();
+        assertEquals(2L, small.getStats().get("users"));
+
+        for (int i = 0; i < 2_000; i++) {
+            small.addMessage(ALICE, 100 + i, "distinct term t" + i, 2_000 + i);
+        }
+        cache.cleanUp();
+
+        assertTrue((long) small.getStats().get("estimatedBytes") <= 64 * 1024);
+        assertTrue((long) small.getStats().get("users") < 2);
+    }
+
+    private void message(long id, long sessionId, String content, long createdAt) {
+        jdbc.update("insert into chat_messages values (?, ?, 'user', ?, 'text', ?)", id, sessionId, content, new Timestamp(createdAt));
+    }
+
+    private void conversation(long id, long userId, String userInput, long createdAt) {
+        jdbc.update("insert into conversations values (?, ?, ?, 'text', ?)", id, userId, userInput, new Timestamp(createdAt));
+    }
+}
@@ -0,0 +1,115 @@
+package com.denial.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentStoreTest {
+
+    private static final String ANSWER = "CO-45: charges exceed the fee schedule or maximum allowable amount. ".repeat(10);
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate tx;
+    private ContentStore store;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table content_blobs (codec smallint not null, raw_length integer not null, " +
+                "created_at datetime(6) not null, hash varbinary(32) not null, data blob not null, primary key (hash))");
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        store = newStore();
+    }
+
+    private ContentStore newStore() {
+        ContentStore contentStore = new ContentStore();
+        ReflectionTestUtils.setField(contentStore, "enabled", true);
+        ReflectionTestUtils.setField(contentStore, "minBytes", 128);
+        ReflectionTestUtils.setField(contentStore, "level", 6);
+        ReflectionTestUtils.setField(contentStore, "cacheSize", 100L);
+        ReflectionTestUtils.setField(contentStore, "jdbcTemplate", jdbc);
+        contentStore.init();
+        return contentStore;
+    }
+
+    @Test
+    void repeatedBodiesAreStoredOnce() {
+        byte[] first = tx.execute(status -> store.store(ANSWER));
+        byte[] second = tx.execute(status -> store.store(ANSWER));
+
+        assertNotNull(first);
+        assertArrayEquals(first, second);
+        assertEquals(1, blobs());
+        assertEquals(1L, store.getStats().get("blobsWritten"));
+        assertEquals(1L, store.getStats().get("deduplicated"));
+        assertTrue((long) store.getStats().get("storedBytes") < ANSWER.length());
+    }
+
+    @Test
+    void anotherInstanceDeduplicatesThroughTheUpsert() {
+        byte[] first = store.store(ANSWER);
+        byte[] second = newStore().store(ANSWER);
+
+        assertArrayEquals(first, second);
+        assertEquals(1, blobs());
+    }
+
+    @Test
+    void rolledBackBlobIsNotRememberedAsStored() {
+        byte[] rolledBack = tx.execute(status -> {
+            byte[] hash = store.store(ANSWER);
+            status.setRollbackOnly();
+            return hash;
+        });
+        assertNotNull(rolledBack);
+        assertEquals(0, blobs());
+
+        // Not taken for a duplicate: the blob is written again
+        byte[] again = tx.execute(status -> store.store(ANSWER));
+
+        assertArrayEquals(rolledBack, again);
+        assertEquals(1, blobs());
+        assertEquals(0L, store.getStats().get("deduplicated"));
+    }
+
+    @Test
+    void resolveReadsTheBlobOrFallsBackToTheInlineValue() {
+        byte[] hash = store.store(ANSWER);
+
+        assertEquals(ANSWER, newStore().resolve(null, hash));
+        assertEquals("inline", store.resolve("inline", null));
+
+        jdbc.update("delete from content_blobs");
+        assertEquals("inline", newStore().resolve("inline", hash));
+    }
+
+    @Test
+    void smallOrDisabledContentStaysInline() {
+        assertNull(store.store("short"));
+        assertNull(store.store(null));
+
+        ReflectionTestUtils.setField(store, "enabled", false);
+        assertNull(store.store(ANSWER));
+        // The cold tier stores regardless of the switch
+        assertNotNull(store.storeCold(ANSWER));
+        assertEquals(1, blobs());
+    }
+
+    private int blobs() {
+        return jdbc.queryForObject("select count(*) from content_blobs", Integer.class);
+    }
+}
@@ -0,0 +1,220 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.Conversation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationHistoryServiceTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+
+    private String primaryUrl;
+    private JdbcTemplate jdbc;
+    private ConversationHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        primaryUrl = newDatabase();
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(primaryUrl, "sa", ""));
+
+        ContentStore contentStore = mock(ContentStore.class);
+        when(contentStore.resolve(any(), any())).thenAnswer(call -> call.getArgument(0));
+        service = new ConversationHistoryService();
+        ReflectionTestUtils.setField(service, "defaultLimit", 50);
+        ReflectionTestUtils.setField(service, "maxLimit", 500);
+        ReflectionTestUtils.setField(service, "snippetLength", 10);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(service, "contentStore", contentStore);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void summaryPagesWalkTheHistoryNewestFirst() {
+        // Ids 1..7; 3, 4 and 5 share a timestamp so the id breaks the tie
+        long[] createdAt = {1_000, 2_000, 3_000, 3_000, 3_000, 4_000, 5_000};
+        for (int i = 0; i < createdAt.length; i++) {
+            conversation("conversations", i + 1, ALICE, "question number " + (i + 1), "semantic_help", createdAt[i]);
+        }
+        conversation("conversations", 8, BOB, "bob's question", "semantic_help", 6_000);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ConversationHistoryService.HistoryPage<ConversationHistoryService.ConversationSummary> page =
+                    service.summaryPage(ConversationHistoryService.HistoryFilter.all(ALICE), cursor, 2);
+            assertTrue(page.items().size() <= 2);
+            page.items().forEach(item -> seen.add(item.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of(7L, 6L, 5L, 4L, 3L, 2L, 1L), seen);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void summariesCarryASnippetButNoOutput() {
+        conversation("conversations", 1, ALICE, "what does denial code CO-45 mean", "denial_info", 1_000);
+
+        ConversationHistoryService.ConversationSummary summary =
+                service.summaryPage(ConversationHistoryService.HistoryFilter.all(ALICE), null, 10).items().get(0);
+
+        assertEquals("what does ", summary.inputSnippet());
+        assertEquals("denial_info", summary.outputType());
+        assertEquals("answer to 1", service.find(ALICE, 1L).orElseThrow().getAiOutput());
+        assertTrue(service.find(BOB, 1L).isEmpty());
+    }
+
+    @Test
+    void summaryAndFullPageCursorsAreInterchangeable() {
+        for (int i = 1; i <= 5; i++) {
+            conversation("conversations", i, ALICE, "question " + i, "semantic_help", i * 1_000L);
+        }
+        ConversationHistoryService.HistoryFilter all = ConversationHistoryService.HistoryFilter.all(ALICE);
+
+        String fromSummary = service.summaryPage(all, null, 2).nextCursor();
+        String fromFull = service.page(all, null, 2).nextCursor();
+
+        assertEquals(fromSummary, fromFull);
+        List<Conversation> next = service.page(all, fromSummary, 2).items();
+        assertEquals(List.of(3L, 2L), next.stream().map(Conversation::getId).toList());
+        assertEquals(List.of(3L, 2L), service.summaryPage(all, fromFull, 2).items().stream()
+                .map(ConversationHistoryService.ConversationSummary::id).toList());
+    }
+
+    @Test
+    void filtersAndTheLastPageHaveNoNextCursor() {
+        conversation("conversations", 1, ALICE, "co-45", "denial_info", 1_000);
+        conversation("conversations", 2, ALICE, "hello", "semantic_help", 2_000);
+        conversation("conversations", 3, ALICE, "co-97", "denial_info", 3_000);
+
+        ConversationHistoryService.HistoryPage<ConversationHistoryService.ConversationSummary> page = service.summaryPage(
+                new ConversationHistoryService.HistoryFilter(ALICE, "denial_info", null, null), null, 2);
+
+        assertEquals(List.of(3L, 1L), page.items().stream().map(ConversationHistoryService.ConversationSummary::id).toList());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.summaryPage(ConversationHistoryService.HistoryFilter.all(ALICE), "not-a-cursor", 10));
+    }
+
+    @Test
+    void streamAfterAWriteReadsThePrimaryWhileTheUserIsSticky() throws IOException {
+        ReplicaRouting replicaRouting = startStreaming(newDatabase());
+        conversation("conversations", 1, ALICE, "what is co-45", "denial_info", 1_000);
+        conversation("conversations", 2, BOB, "what is co-97", "denial_info", 2_000);
+        // The replica has not caught up with either row; only Alice wrote within the sticky window
+        replicaRouting.markWrite(ALICE);
+
+        assertEquals(List.of(1L), streamedIds(ALICE));
+        assertEquals(List.of(), streamedIds(BOB));
+        assertEquals(1L, replicaRouting.getStats().get("stickyReads"));
+        assertEquals(1L, replicaRouting.getStats().get("replicaReads"));
+    }
+
+    @Test
+    void streamWithoutAReplicaReadsThePrimary() throws IOException {
+        startStreaming("");
+        conversation("conversations", 1, ALICE, "what is co-45", "denial_info", 1_000);
+        conversation("conversations_archive", 2, ALICE, "what is co-97", "denial_info", 2_000);
+
+        List<JsonNode> rows = streamed(ALICE);
+
+        assertEquals(2, rows.size());
+        assertEquals(2L, rows.get(0).get("id").asLong());
+        assertEquals("answer to 1", rows.get(1).get("aiOutput").asText());
+    }
+
+    /**
+     * Wires the streaming pools against the test databases the way Spring would and returns the routing.
+     */
+    private ReplicaRouting startStreaming(String replicaUrl) {
+        ReplicaRouting replicaRouting = new ReplicaRouting();
+        ReflectionTestUtils.setField(replicaRouting, "replicaUrl", replicaUrl);
+        ReflectionTestUtils.setField(replicaRouting, "stickyMs", 600_000L);
+        ReflectionTestUtils.setField(replicaRouting, "maxStickyUsers", 100L);
+        ReflectionTestUtils.setField(replicaRouting, "meterRegistry", new SimpleMeterRegistry());
+        replicaRouting.init();
+
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl(primaryUrl);
+        dataSourceProperties.setUsername("sa");
+        dataSourceProperties.setPassword("");
+        ReflectionTestUtils.setField(service, "streamFetchSize", 100);
+        ReflectionTestUtils.setField(service, "streamMaxConnections", 2);
+        ReflectionTestUtils.setField(service, "replicaUrl", replicaUrl);
+        ReflectionTestUtils.setField(service, "replicaUsername", "sa");
+        ReflectionTestUtils.setField(service, "replicaPassword", "");
+        ReflectionTestUtils.setField(service, "dataSourceProperties", dataSourceProperties);
+        ReflectionTestUtils.setField(service, "environment", new StandardEnvironment());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "replicaRouting", replicaRouting);
+        service.init();
+        return replicaRouting;
+    }
+
+    private List<Long> streamedIds(long userId) throws IOException {
+        return streamed(userId).stream().map(row -> row.get("id").asLong()).toList();
+    }
+
+    private List<JsonNode> streamed(long userId) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.stream(ConversationHistoryService.HistoryFilter.all(userId), out);
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) rows.add(new ObjectMapper().readTree(line));
+        }
+        return rows;
+    }
+
+    private static String newDatabase() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        for (String table : List.of("conversations", "conversations_archive")) {
+            jdbc.execute("create table " + table + " (id bigint primary key, user_id bigint not null, user_input text not null, " +
+                    "ai_output text not null, ai_output_ref varbinary(32), output_type varchar(255) not null, " +
+                    "created_at datetime(6) not null, updated_at datetime(6))");
+        }
+        return url;
+    }
+
+    private void conversation(String table, long id, long userId, String input, String type, long createdAt) {
+        jdbc.update("insert into " + table + " values (?, ?, ?, ?, null, ?, ?, ?)",
+                id, userId, input, "answer to " + id, type, new Timestamp(createdAt), new Timestamp(createdAt));
+    }
+}
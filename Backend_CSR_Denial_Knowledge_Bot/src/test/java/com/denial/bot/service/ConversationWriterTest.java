@@ -0,0 +1,191 @@
+package com.denial.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationWriterTest {
+
+    private static final long ALICE = 1L;
+
+    private JdbcTemplate jdbc;
+    private ContentStore contentStore;
+    private ChatSearchIndex chatSearchIndex;
+    private ConversationWriter writer;
+    private boolean stopped;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table conversations (id bigint auto_increment primary key, user_id bigint not null, " +
+                "user_input text not null, ai_output text not null, ai_output_ref varbinary(32), " +
+                "output_type varchar(255) not null, created_at datetime(6) not null, updated_at datetime(6))");
+
+        contentStore = mock(ContentStore.class);
+        chatSearchIndex = mock(ChatSearchIndex.class);
+        writer = new ConversationWriter();
+        ReflectionTestUtils.setField(writer, "queueCapacity", 10);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(writer, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(writer, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(writer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(writer, "contentStore", contentStore);
+        ReflectionTestUtils.setField(writer, "chatSearchIndex", chatSearchIndex);
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "replicaRouting", mock(ReplicaRouting.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (!stopped) writer.stop();
+    }
+
+    @Test
+    void queuedConversationsAreWrittenByTheFlusher() throws Exception {
+        writer.start();
+
+        writer.enqueue(ALICE, "co-45 appeal", response("denial_info"));
+        writer.enqueue(ALICE, "timely filing", response("semantic_help"));
+
+        awaitTrue(() -> rows() == 2);
+        assertEquals(List.of("co-45 appeal", "timely filing"),
+                jdbc.queryForList("select user_input from conversations order by id", String.class));
+        assertEquals("denial_info", jdbc.queryForObject("select output_type from conversations where user_input = 'co-45 appeal'", String.class));
+        assertEquals(0L, writer.getStats().get("inlineWrites"));
+        awaitTrue(() -> (long) writer.getStats().get("written") == 2);
+        verify(chatSearchIndex).addConversation(eq(ALICE), anyLong(), eq("co-45 appeal"), anyLong());
+    }
+
+    @Test
+    void fullQueueWritesInlineOnTheCaller() throws Exception {
+        ReflectionTestUtils.setField(writer, "queueCapacity", 1);
+        CountDownLatch flusherBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFlusher(flusherBusy, release);
+        writer.start();
+
+        writer.enqueue(ALICE, "taken by the flusher", response("semantic_help"));
+        assertTrue(flusherBusy.await(5, TimeUnit.SECONDS));
+        writer.enqueue(ALICE, "fills the queue", response("semantic_help"));
+        writer.enqueue(ALICE, "written inline", response("semantic_help"));
+
+        assertEquals(1L, writer.getStats().get("inlineWrites"));
+        assertEquals(List.of("written inline"), jdbc.queryForList("select user_input from conversations", String.class));
+        release.countDown();
+        awaitTrue(() -> rows() == 3);
+    }
+
+    @Test
+    void stopDrainsTheQueueOnTheShutdownThread() throws Exception {
+        CountDownLatch flusherBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFlusher(flusherBusy, release);
+        writer.start();
+        writer.enqueue(ALICE, "taken by the flusher", response("semantic_help"));
+        assertTrue(flusherBusy.await(5, TimeUnit.SECONDS));
+        writer.enqueue(ALICE, "left in the queue", response("semantic_help"));
+        writer.enqueue(ALICE, "also left in the queue", response("semantic_help"));
+
+        Thread stopping = new Thread(() -> writer.stop());
+        stopping.start();
+        Thread.sleep(100);
+        release.countDown();
+        stopping.join(TimeUnit.SECONDS.toMillis(15));
+        stopped = true;
+
+        assertEquals(3, rows());
+        assertEquals(0, writer.getStats().get("queued"));
+        assertEquals(3L, writer.getStats().get("written"));
+    }
+
+    @Test
+    void enqueueAfterStopWritesInline() {
+        writer.start();
+        writer.stop();
+        stopped = true;
+
+        writer.enqueue(ALICE, "after shutdown", response("semantic_help"));
+
+        assertEquals(1, rows());
+        assertEquals(1L, writer.getStats().get("inlineWrites"));
+    }
+
+    @Test
+    void failedBatchFallsBackToSingleRows() {
+        writer.start();
+        long now = System.currentTimeMillis();
+
+        writer.writeAll(List.of(
+                new ConversationWriter.PendingConversation(ALICE, "first", response("semantic_help"), now),
+                new ConversationWriter.PendingConversation(ALICE, null, response("semantic_help"), now),
+                new ConversationWriter.PendingConversation(ALICE, "third", response("semantic_help"), now)));
+
+        assertEquals(List.of("first", "third"), jdbc.queryForList("select user_input from conversations order by id", String.class));
+        assertEquals(2L, writer.getStats().get("written"));
+        assertEquals(1L, writer.getStats().get("failed"));
+        assertEquals(1L, writer.getStats().get("batchFallbacks"));
+    }
+
+    /**
+     * Holds the flusher thread inside its first row's serialization until {@code release}, ignoring
+     * interrupts so stop() cannot abort it; the interrupt is restored afterwards.
+     */
+    private void blockFlusher(CountDownLatch busy, CountDownLatch release) {
+        when(contentStore.store(any())).thenAnswer(call -> {
+            if (!"conversation-writer".equals(Thread.currentThread().getName()) || busy.getCount() == 0) return null;
+            busy.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (release.await(10, TimeUnit.SECONDS)) break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return null;
+        });
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("select count(*) from conversations", Integer.class);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, Object> response(String type) {
+        return Map.of("success", true, "response", Map.of("type", type, "message", "answer"));
+    }
+}
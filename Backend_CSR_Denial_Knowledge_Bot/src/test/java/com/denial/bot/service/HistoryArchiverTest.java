@@ -0,0 +1,145 @@
+package com.denial.bot.service;
+
+import com.denial.bot.entity.Conversation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HistoryArchiverTest {
+
+    private static final long ALICE = 1L;
+    private static final Timestamp CUTOFF = new Timestamp(10_000);
+
+    private JdbcTemplate jdbc;
+    private HistoryArchiver archiver;
+    private ConversationHistoryService history;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table conversations (id bigint primary key, user_id bigint not null, user_input text not null, " +
+                "ai_output text not null, ai_output_ref varbinary(32), output_type varchar(255) not null, " +
+                "created_at datetime(6) not null, updated_at datetime(6))");
+        jdbc.execute("create table conversations_archive (id bigint primary key, user_id bigint not null, user_input text not null, " +
+                "ai_output text not null, ai_output_ref varbinary(32), output_type varchar(255) not null, " +
+                "created_at datetime(6) not null, updated_at datetime(6), archived_at datetime(6) not null)");
+        jdbc.execute("create table chat_messages (id bigint primary key, session_id bigint not null, role varchar(20) not null, " +
+                "content text not null, content_type varchar(50) not null, metadata text, metadata_ref varbinary(32), " +
+                "created_at datetime(6) not null)");
+        jdbc.execute("create table chat_messages_archive (id bigint primary key, session_id bigint not null, role varchar(20) not null, " +
+                "content text not null, content_ref varbinary(32), content_type varchar(50) not null, metadata text, " +
+                "metadata_ref varbinary(32), created_at datetime(6) not null, archived_at datetime(6) not null)");
+
+        // Bodies stay inline, so the archive rows can be compared with the hot ones
+        ContentStore contentStore = mock(ContentStore.class);
+        when(contentStore.resolve(any(), any())).thenAnswer(call -> call.getArgument(0));
+
+        archiver = new HistoryArchiver();
+        ReflectionTestUtils.setField(archiver, "chunkSize", 2);
+        ReflectionTestUtils.setField(archiver, "chunkPauseMs", 0L);
+        ReflectionTestUtils.setField(archiver, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(archiver, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(archiver, "contentStore", contentStore);
+        ReflectionTestUtils.setField(archiver, "meterRegistry", new SimpleMeterRegistry());
+        archiver.init();
+
+        history = new ConversationHistoryService();
+        ReflectionTestUtils.setField(history, "defaultLimit", 50);
+        ReflectionTestUtils.setField(history, "maxLimit", 500);
+        ReflectionTestUtils.setField(history, "snippetLength", 200);
+        ReflectionTestUtils.setField(history, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(history, "contentStore", contentStore);
+        ReflectionTestUtils.setField(history, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void archivesByCreationTimeNotById() {
+        // Id 1 is newer than the cutoff but sorts first; older rows behind it must still move
+        conversation(1, 20_000);
+        conversation(2, 1_000);
+        conversation(3, 3_000);
+        conversation(4, 3_000);
+        conversation(5, 2_000);
+        conversation(6, 15_000);
+        conversation(7, 4_000);
+
+        HistoryArchiver.ArchiveRun run = archiver.archiveOlderThan(CUTOFF);
+
+        assertEquals(5, run.conversations());
+        assertEquals(List.of(1L, 6L), jdbc.queryForList("select id from conversations order by id", Long.class));
+        assertEquals(List.of(2L, 3L, 4L, 5L, 7L),
+                jdbc.queryForList("select id from conversations_archive order by id", Long.class));
+    }
+
+    @Test
+    void archivesChatMessagesByCreationTime() {
+        message(1, 20_000);
+        message(2, 1_000);
+        message(3, 2_000);
+        message(4, 2_000);
+
+        assertEquals(3, archiver.archiveOlderThan(CUTOFF).messages());
+        assertEquals(List.of(1L), jdbc.queryForList("select id from chat_messages", Long.class));
+        assertEquals(List.of(2L, 3L, 4L), jdbc.queryForList("select id from chat_messages_archive order by id", Long.class));
+    }
+
+    @Test
+    void historyPagesAndCursorsSpanBothTiersAfterArchiving() {
+        long[] createdAt = {20_000, 1_000, 3_000, 3_000, 2_000, 15_000, 4_000, 9_000, 12_000};
+        for (int i = 0; i < createdAt.length; i++) {
+            conversation(i + 1, createdAt[i]);
+        }
+        ConversationHistoryService.HistoryFilter all = ConversationHistoryService.HistoryFilter.all(ALICE);
+        List<Long> before = walk(all, null);
+        ConversationHistoryService.HistoryPage<ConversationHistoryService.ConversationSummary> first =
+                history.summaryPage(all, null, 3);
+
+        archiver.archiveOlderThan(CUTOFF);
+
+        // Newest first, ties on created_at broken by id, wherever the rows now live
+        assertEquals(List.of(1L, 6L, 9L, 8L, 7L, 4L, 3L, 5L, 2L), before);
+        assertEquals(before, walk(all, null));
+        // A cursor handed out before the run continues where it left off
+        assertEquals(before.subList(3, before.size()), walk(all, first.nextCursor()));
+        assertEquals(List.of(8L, 7L), history.page(all, first.nextCursor(), 2).items().stream()
+                .map(Conversation::getId).toList());
+    }
+
+    private List<Long> walk(ConversationHistoryService.HistoryFilter filter, String cursor) {
+        List<Long> ids = new ArrayList<>();
+        do {
+            ConversationHistoryService.HistoryPage<ConversationHistoryService.ConversationSummary> page =
+                    history.summaryPage(filter, cursor, 2);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private void conversation(long id, long createdAt) {
+        jdbc.update("insert into conversations values (?, ?, ?, ?, null, ?, ?, ?)", id, ALICE, "question " + id,
+                "answer " + id, "semantic_help", new Timestamp(createdAt), new Timestamp(createdAt));
+    }
+
+    private void message(long id, long createdAt) {
+        jdbc.update("insert into chat_messages values (?, ?, ?, ?, ?, null, null, ?)", id, 10L, "user",
+                "message " + id, "text", new Timestamp(createdAt));
+    }
+}
@@ -0,0 +1,145 @@
+package com.denial.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberSubscriptionStoreTest {
+
+    private static final String HEADER = "member_id,member_name,plan_id,effective_date,end_date,status";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    private Path csv;
+    private MemberSubscriptionStore store;
+
+    @BeforeEach
+    void setUp() {
+        csv = dir.resolve("member_subscription.csv");
+        store = new MemberSubscriptionStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "datasetLocation", csv.toUri().toString());
+        ReflectionTestUtils.setField(store, "resourceLoader", new DefaultResourceLoader());
+    }
+
+    @Test
+    void findActiveOnMatchesABruteForceScan() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        Random random = new Random(42);
+        String[] plans = {"PPO024", "EPO032", "hmo007"};
+        for (int i = 0; i < 300; i++) {
+            LocalDate effective = FIRST_DAY.plusDays(random.nextInt(400));
+            // Open-ended, ending before it starts, or a normal span
+            String end = switch (random.nextInt(10)) {
+                case 0 -> "";
+                case 1 -> effective.minusDays(1 + random.nextInt(30)).toString();
+                default -> effective.plusDays(random.nextInt(200)).toString();
+            };
+            lines.add(String.join(",", "M" + (1000 + random.nextInt(120)), "Member " + i,
+                    plans[random.nextInt(plans.length)], effective.toString(), end,
+                    random.nextInt(4) == 0 ? "Inactive" : "Active"));
+        }
+        lines.add("M9999,Bad Date,PPO024,not-a-date,,Active");
+        Files.write(csv, lines);
+        store.init();
+        List<MemberSubscriptionStore.Subscription> all = parse(lines);
+
+        for (LocalDate day = FIRST_DAY.minusDays(5); day.isBefore(FIRST_DAY.plusDays(620)); day = day.plusDays(7)) {
+            for (String plan : new String[]{null, "PPO024", "epo032", "HMO007", "NONE"}) {
+                LocalDate on = day;
+                List<MemberSubscriptionStore.Subscription> expected = all.stream()
+                        .filter(s -> s.isActiveOn(on) && (plan == null || s.planId().equalsIgnoreCase(plan)))
+                        .sorted(Comparator.comparing(MemberSubscriptionStore.Subscription::effectiveDate).reversed())
+                        .toList();
+
+                MemberSubscriptionStore.ActiveMembers found = store.findActiveOn(day, plan, 1_000);
+                assertEquals(expected.size(), found.total(), day + " " + plan);
+                assertEquals(new HashSet<>(expected), new HashSet<>(found.items()), day + " " + plan);
+                assertEquals(expected.stream().map(MemberSubscriptionStore.Subscription::effectiveDate).toList(),
+                        found.items().stream().map(MemberSubscriptionStore.Subscription::effectiveDate).toList());
+
+                MemberSubscriptionStore.ActiveMembers page = store.findActiveOn(day, plan, 3);
+                assertEquals(expected.size(), page.total());
+                assertEquals(Math.min(3, expected.size()), page.items().size());
+            }
+        }
+    }
+
+    @Test
+    void findByMemberIdReturnsEveryRowInFileOrder() throws IOException {
+        Files.write(csv, List.of(HEADER,
+                "M1,Ann Lee,PPO024,2024-01-01,2024-06-30,Inactive",
+                "M2,Bo Chen,EPO032,2024-02-01,,Active",
+                "m1,Ann Lee,EPO032,2024-07-01,,Active"));
+        store.init();
+
+        List<MemberSubscriptionStore.Subscription> rows = store.findByMemberId(" m1 ");
+
+        assertEquals(List.of("PPO024", "EPO032"), rows.stream().map(MemberSubscriptionStore.Subscription::planId).toList());
+        assertNull(rows.get(1).endDate());
+        assertTrue(rows.get(1).isActiveOn(LocalDate.of(2030, 1, 1)));
+        assertTrue(store.findByMemberId("M3").isEmpty());
+    }
+
+    @Test
+    void changedDatasetIsReloaded() throws IOException {
+        Files.write(csv, List.of(HEADER, "M1,Ann Lee,PPO024,2024-01-01,,Active"));
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(1_000_000));
+        store.init();
+        store.reloadIfChanged();
+        assertEquals(1, store.getStats().get("reloads"));
+
+        Files.write(csv, List.of(HEADER, "M1,Ann Lee,PPO024,2024-01-01,,Active", "M2,Bo Chen,PPO024,2024-01-01,,Active"));
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(2_000_000));
+        store.reloadIfChanged();
+
+        assertEquals(2, store.getStats().get("reloads"));
+        assertEquals(2, store.findActiveOn(LocalDate.of(2024, 3, 1), "ppo024", 10).total());
+    }
+
+    @Test
+    void missingDatasetKeepsTheCurrentColumns() throws IOException {
+        Files.write(csv, List.of(HEADER, "M1,Ann Lee,PPO024,2024-01-01,,Active"));
+        store.init();
+        Files.delete(csv);
+
+        assertFalse(store.reload());
+        assertEquals(1, store.findByMemberId("M1").size());
+    }
+
+    private static List<MemberSubscriptionStore.Subscription> parse(List<String> lines) {
+        List<MemberSubscriptionStore.Subscription> result = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] f = Arrays.copyOf(line.split(",", -1), 6);
+            try {
+                result.add(new MemberSubscriptionStore.Subscription(f[0], f[1], f[2].toUpperCase(),
+                        LocalDate.parse(f[3]), f[4].isEmpty() ? null : LocalDate.parse(f[4]), "Active".equals(f[5])));
+            } catch (RuntimeException e) {
+                // Skipped by the store as well
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+package com.denial.bot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MlApiClientTest {
+
+    /** Response delays of the stub's next /query calls; empty means answer at once. */
+    private final ConcurrentLinkedQueue<Long> delays = new ConcurrentLinkedQueue<>();
+    private HttpServer server;
+    private MlCircuitBreaker circuitBreaker;
+    private MlApiClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/query", exchange -> {
+            Long delay = delays.poll();
+            try {
+                if (delay != null) Thread.sleep(delay);
+                byte[] body = "{\"success\":true}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException | IOException e) {
+                // The client went away
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+
+        circuitBreaker = mock(MlCircuitBreaker.class);
+        when(circuitBreaker.allowRequest()).thenReturn(true);
+        when(circuitBreaker.getState()).thenReturn(MlCircuitBreaker.State.CLOSED);
+        client = new MlApiClient();
+        ReflectionTestUtils.setField(client, "mlApiBaseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 3_000L);
+        ReflectionTestUtils.setField(client, "queryTimeoutMs", 20_000L);
+        ReflectionTestUtils.setField(client, "maxInFlight", 8);
+        ReflectionTestUtils.setField(client, "ioThreads", 2);
+        ReflectionTestUtils.setField(client, "http2", false);
+        ReflectionTestUtils.setField(client, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 100L);
+        ReflectionTestUtils.setField(client, "hedgeMinDelayMs", 300L);
+        ReflectionTestUtils.setField(client, "hedgeMaxDelayMs", 600L);
+        ReflectionTestUtils.setField(client, "hedgeMinSamples", 3);
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(client, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(client, "meterRegistry", new SimpleMeterRegistry());
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void hedgeDelayStartsAtTheInitialDelayThenFollowsTheClampedP95() {
+        assertEquals(100L, client.getHedgeStats().get("queryHedgeDelayMs"));
+
+        // Fast answers: the p95 is clamped up to the minimum
+        for (int i = 0; i < 3; i++) query();
+        assertEquals(300L, client.getHedgeStats().get("queryHedgeDelayMs"));
+
+        // Slow answers push the p95 past the maximum
+        ReflectionTestUtils.setField(client, "hedgeEnabled", false);
+        for (int i = 0; i < 2; i++) {
+            delays.add(800L);
+            query();
+        }
+        assertEquals(600L, client.getHedgeStats().get("queryHedgeDelayMs"));
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndTheLoserCancelled() throws Exception {
+        // Open a connection first so the primary is on the wire well before the hedge
+        ReflectionTestUtils.setField(client, "hedgeEnabled", false);
+        query();
+        ReflectionTestUtils.setField(client, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 300L);
+        delays.add(5_000L);
+
+        long started = System.nanoTime();
+        Map<String, Object> body = query();
+
+        assertEquals(true, body.get("success"));
+        assertEquals(1L, client.getHedgeStats().get("hedgesSent"));
+        // Counted just after the result completes
+        awaitTrue(() -> (long) client.getHedgeStats().get("hedgeWins") == 1);
+        // The cancelled primary gave its permit back long before the stub would have answered
+        awaitTrue(() -> client.getInFlight() == 0);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 4_000);
+        verify(circuitBreaker, never()).onFailure();
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() throws Exception {
+        query();
+        Thread.sleep(200);
+
+        assertEquals(0L, client.getHedgeStats().get("hedgesSent"));
+        assertEquals(0, client.getInFlight());
+    }
+
+    private Map<String, Object> query() {
+        return client.post(MlApiClient.Endpoint.QUERY, Map.of("query", "co-45")).join();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
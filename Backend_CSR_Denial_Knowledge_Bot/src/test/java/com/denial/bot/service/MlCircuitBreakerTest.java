@@ -0,0 +1,146 @@
+package com.denial.bot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MlCircuitBreakerTest {
+
+    private static final long OPEN_MS = 15_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private SmartQueryService smartQueryService;
+    private CompletableFuture<Boolean> probe;
+    private MlCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        smartQueryService = mock(SmartQueryService.class);
+        probe = new CompletableFuture<>();
+        when(smartQueryService.checkMLApiHealthAsync()).thenAnswer(call -> probe);
+        breaker = new MlCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "openMs", OPEN_MS);
+        ReflectionTestUtils.setField(breaker, "smartQueryService", smartQueryService);
+        ReflectionTestUtils.setField(breaker, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(breaker, "clock", (LongSupplier) now::get);
+        breaker.init();
+    }
+
+    @Test
+    void staysClosedUntilTheWindowHasEnoughCalls() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensAtTheFailureRateOverTheSlidingWindow() {
+        for (int i = 0; i < 6; i++) breaker.onSuccess();
+        for (int i = 0; i < 4; i++) breaker.onFailure();
+        // 4 of 10 failed
+        assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The oldest success drops out of the window: 5 of 10
+        breaker.onFailure();
+
+        assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1L, breaker.getStats().get("opened"));
+    }
+
+    @Test
+    void openRejectsThenHalfOpenProbeClosesIt() {
+        trip();
+
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(OPEN_MS - 1);
+        assertFalse(breaker.allowRequest());
+        verify(smartQueryService, never()).checkMLApiHealthAsync();
+
+        now.addAndGet(1);
+        assertFalse(breaker.allowRequest());
+        assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only one probe while half-open
+        assertFalse(breaker.allowRequest());
+        verify(smartQueryService, times(1)).checkMLApiHealthAsync();
+
+        probe.complete(true);
+
+        assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(0, breaker.getStats().get("windowCalls"));
+        assertEquals(4L, breaker.getStats().get("rejected"));
+    }
+
+    @Test
+    void failedProbeReopensForAnotherPeriod() {
+        trip();
+        now.addAndGet(OPEN_MS);
+        breaker.probeIfDue();
+        assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        probe.complete(false);
+
+        assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+        probe = new CompletableFuture<>();
+        now.addAndGet(OPEN_MS - 1);
+        breaker.probeIfDue();
+        assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+        now.addAndGet(1);
+        breaker.probeIfDue();
+        assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void outcomesOutsideClosedAreIgnored() {
+        trip();
+        now.addAndGet(OPEN_MS);
+        breaker.probeIfDue();
+
+        // Late answers of calls sent before the breaker opened
+        breaker.onFailure();
+        breaker.onSuccess();
+        probe.complete(true);
+
+        assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getStats().get("windowCalls"));
+    }
+
+    @Test
+    void disabledBreakerAlwaysAllows() {
+        ReflectionTestUtils.setField(breaker, "enabled", false);
+
+        for (int i = 0; i < 10; i++) breaker.onFailure();
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void trip() {
+        for (int i = 0; i < 4; i++) breaker.onFailure();
+        assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
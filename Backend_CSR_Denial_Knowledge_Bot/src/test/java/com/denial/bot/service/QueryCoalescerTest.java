@@ -0,0 +1,118 @@
+package com.denial.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryCoalescerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private CompletableFuture<Map<String, Object>> pending;
+    private QueryCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new QueryCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        pending = new CompletableFuture<>();
+    }
+
+    private Supplier<CompletableFuture<Map<String, Object>>> loader() {
+        return () -> {
+            calls.incrementAndGet();
+            return pending;
+        };
+    }
+
+    @Test
+    void identicalQueriesInFlightShareOneCall() throws Exception {
+        CompletableFuture<Map<String, Object>> first = coalescer.execute("What is CO-45?", "denial", loader());
+        CompletableFuture<Map<String, Object>> second = coalescer.execute("what is  co-45?", "DENIAL", loader());
+        assertFalse(first.isDone());
+
+        pending.complete(answer());
+
+        assertEquals(1, calls.get());
+        Map<String, Object> a = first.get();
+        Map<String, Object> b = second.get();
+        assertNotSame(a, b);
+        a.put("answer", "changed by first caller");
+        assertEquals("co-45", b.get("answer"));
+        assertEquals(1L, coalescer.getStats().get("collapsed"));
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void differentQueriesAreNotCoalesced() {
+        coalescer.execute("co-45", "denial", loader());
+        coalescer.execute("co-45", "general", loader());
+        coalescer.execute("co-97", "denial", loader());
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void completedQueryIsNotReused() {
+        coalescer.execute("co-45", "denial", loader());
+        pending.complete(answer());
+        pending = new CompletableFuture<>();
+
+        coalescer.execute("co-45", "denial", loader());
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void failuresReachEveryWaiterAndAreNotKept() {
+        CompletableFuture<Map<String, Object>> first = coalescer.execute("co-45", "denial", loader());
+        CompletableFuture<Map<String, Object>> second = coalescer.execute("co-45", "denial", loader());
+        IllegalStateException failure = new IllegalStateException("ML API down");
+
+        pending.completeExceptionally(failure);
+
+        assertSame(failure, assertThrows(ExecutionException.class, first::get).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, second::get).getCause());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void loaderThatThrowsFailsTheCallInsteadOfLeakingTheKey() {
+        CompletableFuture<Map<String, Object>> result = coalescer.execute("co-45", "denial", () -> {
+            throw new IllegalArgumentException("bad request");
+        });
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    void disabledCoalescerCallsEveryTime() {
+        ReflectionTestUtils.setField(coalescer, "enabled", false);
+
+        coalescer.execute("co-45", "denial", loader());
+        coalescer.execute("co-45", "denial", loader());
+
+        assertEquals(2, calls.get());
+    }
+
+    private static Map<String, Object> answer() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("answer", "co-45");
+        return response;
+    }
+}
@@ -0,0 +1,106 @@
+package com.denial.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryResponseCacheTest {
+
+    private SmartQueryService smartQueryService;
+    private QueryResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        smartQueryService = mock(SmartQueryService.class);
+        cache = new QueryResponseCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 900L);
+        ReflectionTestUtils.setField(cache, "smartQueryService", smartQueryService);
+        cache.init();
+    }
+
+    @Test
+    void keysIgnoreCaseAndWhitespace() {
+        cache.put("  What is   CO-45? ", "DENIAL", answer("co-45"));
+
+        assertNotNull(cache.get("what is co-45?", "denial"));
+        assertNull(cache.get("what is co-45?", "general"));
+    }
+
+    @Test
+    void errorResponsesAreNotCached() {
+        cache.put("co-45", "denial", Map.of("success", false, "error", "ML API down"));
+
+        assertNull(cache.get("co-45", "denial"));
+    }
+
+    @Test
+    void hitsAreCopiesCallersCannotCorrupt() {
+        cache.put("co-45", "denial", answer("co-45"));
+
+        Map<String, Object> first = cache.get("co-45", "denial");
+        first.put("answer", "changed by caller");
+        Map<String, Object> second = cache.get("co-45", "denial");
+
+        assertNotSame(first, second);
+        assertEquals("co-45", second.get("answer"));
+    }
+
+    @Test
+    void newModelVersionDropsEveryEntry() {
+        cache.onHealthStatus(Map.of("status", "ok", "model_version", "v1"));
+        cache.put("co-45", "denial", answer("co-45"));
+
+        cache.onHealthStatus(Map.of("status", "ok", "model_version", "v1"));
+        assertNotNull(cache.get("co-45", "denial"));
+
+        cache.onHealthStatus(Map.of("status", "ok", "model_version", "v2"));
+        assertNull(cache.get("co-45", "denial"));
+    }
+
+    @Test
+    void unreachableOrUnversionedHealthKeepsEntries() {
+        cache.onHealthStatus(Map.of("model_version", "v1"));
+        cache.put("co-45", "denial", answer("co-45"));
+
+        cache.onHealthStatus(null);
+        cache.onHealthStatus(Map.of("status", "ok"));
+        cache.onHealthStatus(Map.of("model_version", "v1"));
+
+        assertNotNull(cache.get("co-45", "denial"));
+    }
+
+    @Test
+    void scheduledCheckPollsTheMlHealth() {
+        when(smartQueryService.getHealthStatusAsync()).thenReturn(
+                CompletableFuture.completedFuture(Map.of("model_version", "v1")),
+                CompletableFuture.completedFuture(Map.of("model_version", "v2")));
+        cache.checkModelVersion();
+        cache.put("co-45", "denial", answer("co-45"));
+
+        cache.checkModelVersion();
+
+        assertNull(cache.get("co-45", "denial"));
+    }
+
+    private static Map<String, Object> answer(String text) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("answer", text);
+        response.put("sources", List.of(Map.of("code", text)));
+        return response;
+    }
+}
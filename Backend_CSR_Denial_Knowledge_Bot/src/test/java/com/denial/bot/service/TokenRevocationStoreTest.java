@@ -0,0 +1,195 @@
+package com.denial.bot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenRevocationStoreTest {
+
+    private static final long TICK_MS = 1_000;
+    private static final long START = 100_000;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private TokenRevocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new TokenRevocationStore();
+        ReflectionTestUtils.setField(store, "initialCapacity", 16);
+        ReflectionTestUtils.setField(store, "bloomBits", 1024);
+        ReflectionTestUtils.setField(store, "tickMs", TICK_MS);
+        ReflectionTestUtils.setField(store, "wheelSlots", 8);
+        ReflectionTestUtils.setField(store, "clock", (LongSupplier) now::get);
+        store.init();
+    }
+
+    @Test
+    void revokedUntilExpiry() {
+        store.revoke(42L, START + 1_500);
+
+        assertTrue(store.isRevoked(42L));
+        assertFalse(store.isRevoked(43L));
+        now.set(START + 1_500);
+        assertFalse(store.isRevoked(42L));
+    }
+
+    @Test
+    void alreadyExpiredTokensAreIgnored() {
+        store.revoke(42L, START);
+
+        assertFalse(store.isRevoked(42L));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void collidingKeysAreFoundAcrossTombstones() {
+        long[] colliding = collidingKeys(3);
+        store.revoke(colliding[0], START + 500);
+        store.revoke(colliding[1], START + 5_500);
+        store.revoke(colliding[2], START + 5_500);
+
+        now.set(START + 1_000);
+        store.sweep();
+
+        assertEquals(2, store.size());
+        assertFalse(store.isRevoked(colliding[0]));
+        assertTrue(store.isRevoked(colliding[1]));
+        assertTrue(store.isRevoked(colliding[2]));
+
+        // Re-revoking reuses the tombstone in front of the other two
+        store.revoke(colliding[0], START + 5_500);
+        assertEquals(3, store.size());
+        for (long key : colliding) {
+            assertTrue(store.isRevoked(key));
+        }
+    }
+
+    @Test
+    void expiredEntriesAreSweptWithinOneTick() {
+        store.revoke(42L, START + 900);
+
+        // Mid-tick sweep: the entry is still live
+        now.set(START + 500);
+        store.sweep();
+        assertEquals(1, store.size());
+
+        // Expired, but its tick is not over yet; lookups already say no
+        now.set(START + 950);
+        assertFalse(store.isRevoked(42L));
+
+        now.set(START + TICK_MS + 10);
+        store.sweep();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void laterRoundsOfTheSameSlotSurviveWheelWrap() {
+        // Eight slots of one second: both expiries land in the same slot, one turn apart
+        store.revoke(1L, START + 2_500);
+        store.revoke(2L, START + 10_500);
+
+        now.set(START + 3_000);
+        store.sweep();
+        assertEquals(1, store.size());
+        assertFalse(store.isRevoked(1L));
+        assertTrue(store.isRevoked(2L));
+
+        now.set(START + 11_000);
+        store.sweep();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void sweepAfterLongPauseVisitsEverySlot() {
+        for (long key = 1; key <= 8; key++) {
+            store.revoke(key, START + key * TICK_MS + 100);
+        }
+
+        // Several turns of the wheel without a sweep
+        now.set(START + 50 * TICK_MS);
+        store.sweep();
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void extendedExpiryIsRescheduled() {
+        store.revoke(42L, START + 2_500);
+        store.revoke(42L, START + 5_500);
+        assertEquals(1, store.size());
+
+        now.set(START + 3_000);
+        store.sweep();
+        assertTrue(store.isRevoked(42L));
+        assertEquals(1, store.size());
+
+        now.set(START + 6_000);
+        store.sweep();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void bloomFalsePositiveFallsThroughToTable() {
+        // Same low word and same odd-rounded high word: identical Bloom probes
+        long revoked = 0x2_0000_0005L;
+        long lookalike = 0x3_0000_0005L;
+        store.revoke(revoked, START + 5_000);
+
+        assertFalse(store.isRevoked(lookalike));
+        assertTrue(store.isRevoked(revoked));
+
+        assertEquals(1L, store.getStats().get("bloomFalsePositives"));
+        assertEquals(1L, store.getStats().get("revokedHits"));
+    }
+
+    @Test
+    void bloomIsRebuiltAfterSweep() {
+        store.revoke(42L, START + 500);
+        now.set(START + TICK_MS);
+        store.sweep();
+
+        assertFalse(store.isRevoked(42L));
+        assertEquals(1L, store.getStats().get("bloomNegatives"));
+    }
+
+    @Test
+    void readersSeeEntriesWhileTheTableGrows() throws InterruptedException {
+        store.revoke(7L, START + 60_000);
+        AtomicBoolean missed = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                if (!store.isRevoked(7L)) missed.set(true);
+            }
+        });
+        reader.start();
+        for (long key = 1_000; key < 50_000; key++) {
+            store.revoke(key, START + 60_000);
+        }
+        done.set(true);
+        reader.join();
+
+        assertFalse(missed.get());
+        assertEquals(49_001, store.size());
+    }
+
+    private long[] collidingKeys(int count) {
+        int mask = (Integer) store.getStats().get("tableCapacity") - 1;
+        int target = TokenRevocationStore.mix(1L) & mask;
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            if ((TokenRevocationStore.mix(key) & mask) == target) keys.add(key);
+        }
+        return keys.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -1,10 +1,10 @@
 import React, { useState, useEffect, useRef, useCallback } from 'react';
 import { useAuth } from '../../context/AuthContext';
 import { useNavigate } from 'react-router-dom';
-import { API_ENDPOINTS } from '../../config/api';
 import generalChatbot from '../../services/generalChatbot';
 import advancedAI from '../../services/advancedAI';
 import chatHistory from '../../services/chatHistory';
+import smartQuery from '../../services/smartQuery';
 import './ChatBot.css';
 
 function ChatBot() {
@@ -444,21 +444,13 @@ ${backendAnswer}`
         return;
       }
 
-      const response = await fetch(API_ENDPOINTS.SMART_QUERY, {
-        method: 'POST',
-        headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
-        },
-        body: JSON.stringify({
-          query: userQuery
-        }),
+      // Streamed: status events arrive while the ML API is still working on the answer
+      const { ok, result } = await smartQuery.query(userQuery, token, (stage) => {
+        if (stage === 'ml_api') setConnectionStatus('processing');
       });
-
-      const result = await response.json();
       console.log('Backend response:', result);
 
-      if (response.ok) {
+      if (ok) {
         // Handle JSON responses properly
         let displayText = result.response || 'I processed your query successfully.';
         
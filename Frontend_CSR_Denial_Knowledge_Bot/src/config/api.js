@@ -13,6 +13,7 @@ export const API_ENDPOINTS = {
   
   // Smart Query endpoints (main functionality)
   SMART_QUERY: `${BASE_URL}/api/smart/query`,
+  SMART_QUERY_STREAM: `${BASE_URL}/api/smart/query/stream`,
   SMART_HEALTH: `${BASE_URL}/api/smart/health`,
   TRAIN_STATUS: `${BASE_URL}/api/smart/train-status`,
   AVAILABLE_DATA: `${BASE_URL}/api/smart/available-data`,
@@ -21,4 +22,5 @@ export const API_ENDPOINTS = {
   CHAT_SESSIONS: `${BASE_URL}/api/chat/sessions`,
   CHAT_TODAY_SESSION: `${BASE_URL}/api/chat/sessions/today`,
   CHAT_SESSION_MESSAGES: (sessionId) => `${BASE_URL}/api/chat/sessions/${sessionId}/messages`,
+  CHAT_SESSION_MESSAGES_BULK: (sessionId) => `${BASE_URL}/api/chat/sessions/${sessionId}/messages/bulk`,
 };
\ No newline at end of file
@@ -87,6 +87,22 @@ const chatHistory = {
     }
     return data.data;
   },
+
+  async appendMessages(sessionId, messages) {
+    const res = await fetch(API_ENDPOINTS.CHAT_SESSION_MESSAGES_BULK(sessionId), {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        ...getAuthHeader(),
+      },
+      body: JSON.stringify({ messages }),
+    });
+    const data = await res.json();
+    if (!res.ok || !data?.success) {
+      throw new Error(data?.error || 'Failed to append messages');
+    }
+    return data.data;
+  },
 };
 
 export default chatHistory;
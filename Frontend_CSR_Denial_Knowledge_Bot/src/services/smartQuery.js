@@ -0,0 +1,84 @@
+import { API_ENDPOINTS } from '../config/api';
+
+// EventSource cannot POST or send an Authorization header, so the SSE stream is read with fetch.
+
+const parseEvent = (block) => {
+  let event = 'message';
+  const data = [];
+  for (const line of block.split('\n')) {
+    if (!line || line.startsWith(':')) continue; // keep-alive comment
+    const colon = line.indexOf(':');
+    const field = colon < 0 ? line : line.slice(0, colon);
+    const value = colon < 0 ? '' : line.slice(colon + 1).replace(/^ /, '');
+    if (field === 'event') event = value;
+    else if (field === 'data') data.push(value);
+  }
+  if (data.length === 0) return null;
+  try {
+    return { event, data: JSON.parse(data.join('\n')) };
+  } catch (_) {
+    return { event, data: data.join('\n') };
+  }
+};
+
+const postQuery = async (query, token) => {
+  const res = await fetch(API_ENDPOINTS.SMART_QUERY, {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+      'Authorization': `Bearer ${token}`
+    },
+    body: JSON.stringify({ query }),
+  });
+  return { ok: res.ok, result: await res.json() };
+};
+
+const smartQuery = {
+  /**
+   * Sends a query over /api/smart/query/stream and resolves with the final answer as
+   * { ok, result }, where result is the body /api/smart/query would return.
+   * onStatus receives each progress stage ('accepted', 'ml_api') as it arrives.
+   * Falls back to the plain endpoint when the browser cannot read a response stream.
+   */
+  async query(query, token, onStatus) {
+    const res = await fetch(API_ENDPOINTS.SMART_QUERY_STREAM, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        'Accept': 'text/event-stream',
+        'Authorization': `Bearer ${token}`
+      },
+      body: JSON.stringify({ query }),
+    });
+    if (!res.body || typeof res.body.getReader !== 'function') {
+      return postQuery(query, token);
+    }
+
+    const reader = res.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+      const { value, done } = await reader.read();
+      buffer += decoder.decode(value || new Uint8Array(), { stream: !done }).replace(/\r\n?/g, '\n');
+      let end;
+      while ((end = buffer.indexOf('\n\n')) >= 0) {
+        const parsed = parseEvent(buffer.slice(0, end));
+        buffer = buffer.slice(end + 2);
+        if (!parsed) continue;
+        if (parsed.event === 'status') {
+          if (onStatus) onStatus(parsed.data?.stage);
+        } else if (parsed.event === 'answer') {
+          reader.cancel().catch(() => {});
+          return { ok: res.ok && parsed.data?.success !== false, result: parsed.data };
+        } else if (parsed.event === 'error') {
+          reader.cancel().catch(() => {});
+          return { ok: false, result: parsed.data };
+        }
+      }
+      if (done) break;
+    }
+    throw new Error('Query stream ended without an answer');
+  },
+};
+
+export default smartQuery;